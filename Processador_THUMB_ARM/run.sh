@@ -0,0 +1,36 @@
+#!/bin/sh
+#####################################################################################
+# @filename: 		run.sh
+# @description:	Runs the simulator with a short startup: the classes are kept in a
+# 					jar with an AppCDS archive (class data sharing), created by the
+# 					first run and loaded mapped by the next ones, and only the C1 JIT
+# 					is used, since a run is too short for the C2 to pay off. The jar
+# 					and the archive are built again when a source file changes.
+# 					Usage: ./run.sh [options] [arquivos/input/<file>.txt]
+# @version:		1.0
+# @created:  		10/18/2026, 18:21:07
+# @modified: 		10/18/2026, 18:21:07
+# @revision:  		none
+# @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+# @organization:	UFC - Quixada
+#####################################################################################
+
+cd "$(dirname "$0")" || exit 1
+CACHE=arquivos/cache
+JAR=$CACHE/thumb.jar
+JSA=$CACHE/thumb.jsa
+
+if [ ! -f "$JAR" ] || [ -n "$(find src -name '*.java' -newer "$JAR")" ]; then
+	rm -rf "$CACHE/classes" "$JSA"
+	mkdir -p "$CACHE/classes"
+	javac -encoding UTF-8 -d "$CACHE/classes" src/*.java || exit 1
+	jar --create --file "$JAR" --main-class App -C "$CACHE/classes" . || exit 1
+	rm -rf "$CACHE/classes"
+fi
+
+if [ -f "$JSA" ]; then
+	CDS="-XX:SharedArchiveFile=$JSA"
+else
+	CDS="-XX:ArchiveClassesAtExit=$JSA"
+fi
+exec java "$CDS" -Xlog:cds=off -Xlog:cds+dynamic=off -XX:TieredStopAtLevel=1 -jar "$JAR" "$@"
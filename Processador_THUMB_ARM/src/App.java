@@ -11,17 +11,160 @@
  * @organization:	UFC - Quixada
  *************************************************************************************/
 
+import java.io.IOException;
+
 public class App {
 
 	public static void main(String[] args) {
+		if(args.length == 2 && args[0].equals("-tracedump")) {
+			try {
+				System.out.print(TraceCPU.toText(args[1]));
+			}
+			catch (IOException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return;
+		}
 		String file = "arquivos/input/file_5.txt";
-		ThumbInstructions thumbInstructions = new ThumbInstructions(file);
+		OptionsCPU options = new OptionsCPU();
+		try {
+			for(int i = 0; i < args.length; ) {
+				int n = options.parseOption(args, i);
+				if(n == 0) {
+					file = args[i];
+					n = 1;
+				}
+				i += n;
+			}
+			if(options.getReverse() > 0 && options.getGdbPort() == 0)
+				throw new IllegalArgumentException("The option -reverse needs -gdb");
+		}
+		catch (IllegalArgumentException e) {
+			System.out.println("Error: " + e.getMessage());
+			return;
+		}
+		int exitCode;
+		try {
+			exitCode = simulate(file, options);
+		}
+		finally {
+			options.closeUart();
+		}
+		if(exitCode != 0)
+			System.exit(exitCode);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		simulate
+	 * Description: Runs the file in the mode of the options and returns the exit code of 
+	 * 				the program
+	 * Return:		int	
+	 *****************************************************************************************/
+	private static int simulate(String file, OptionsCPU options) {
+		if(options.getServerAddress() != null) {
+			try {
+				new SimulationServer(options.getServerAddress()).run();
+			}
+			catch (IOException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return 0;
+		}
+		if(options.getWatchDir() != null) {
+			try {
+				new WatchRunner(options, options.getWatchDir()).run();
+			}
+			catch (IOException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return 0;
+		}
+		if(options.getBatchDir() != null) {
+			try {
+				if(options.getClusterWorkers() != null)
+					System.out.println(new ClusterCoordinator(options, options.getClusterWorkers()).run(options.getBatchDir()));
+				else
+					System.out.println(new BatchRunner(options, BatchRunner.RESULTS).run(options.getBatchDir()));
+			}
+			catch (IOException | IllegalArgumentException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return 0;
+		}
+		if(options.getLanesFile() != null) {
+			try {
+				LaneExecutor lanes = new LaneExecutor(file, options, options.getLanesFile());
+				lanes.run();
+				System.out.println(lanes.showLanes());
+			}
+			catch (IOException | IllegalArgumentException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return 0;
+		}
+		if(options.getGdbPort() > 0) {
+			try {
+				new GdbStub(file, options, options.getGdbPort()).run();
+			}
+			catch (IOException e) {
+				System.out.println("Error: " + e.getMessage());
+			}
+			return 0;
+		}
+		if(options.getCores() > 0) {
+			try {
+				MultiCoreCPU multiCore = new MultiCoreCPU(file, options, options.getCores());
+				multiCore.run();
+				System.out.println(multiCore.showCores());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 0;
+		}
+		ThumbInstructions thumbInstructions = new ThumbInstructions(file, options);
 		System.out.println(thumbInstructions.getStrOpcodes());
 		System.out.println(thumbInstructions.showRegisters());
 		System.out.println(thumbInstructions.showCPSR());
 		System.out.println(thumbInstructions.showProgramMemory());
 		System.out.println(thumbInstructions.showDataMemory());
 		System.out.println(thumbInstructions.showStackMemory());
+		if(options.getTiming() != null)
+			System.out.println(thumbInstructions.showCycles());
+		if(options.getSysTick() != null)
+			System.out.println(thumbInstructions.showEvents());
+		if(options.isSemihosting())
+			System.out.println(thumbInstructions.showSemihosting());
+		if(options.getRepeat() > 0)
+			System.out.println(repeat(file, options));
+		return thumbInstructions.getExitCode();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		repeat
+	 * Description: Runs the program options.getRepeat() times more, reusing a simulation of 
+	 * 				a SimulatorPool, and shows the average time of a run
+	 * Return:		String	
+	 *****************************************************************************************/
+	private static String repeat(String file, OptionsCPU options) {
+		SimulatorPool pool = new SimulatorPool(options, 1);
+		long dirty = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < options.getRepeat(); i++) {
+			ThumbInstructions simulation = pool.acquire(file);
+			simulation.run();
+			dirty += simulation.getCountDirty();
+			pool.release(simulation);
+		}
+		long time = System.nanoTime() - start;
+		String 
+		str  = "\n---------------------------------------------------------------------\n";
+		str +=   "|                              Repeat                               |";
+		str += "\n---------------------------------------------------------------------\n";
+		str += String.format("Runs:                %d\n", options.getRepeat());
+		str += String.format("Average time:        %.2f us\n", time / 1000.0 / options.getRepeat());
+		str += String.format("Average pages reset: %.2f", (double) dirty / options.getRepeat());
+		return str;
 	}
 	
 }
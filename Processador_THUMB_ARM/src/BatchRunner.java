@@ -0,0 +1,349 @@
+/*************************************************************************************
+ * @filename: 		BatchRunner.java
+ * @description:	Class that runs all the input files of a directory. The runs are
+ * 					deterministic, so the output of a run is kept in the results
+ * 					directory keyed by the SHA-256 of the input file and of the
+ * 					options, and an input that was already run is not simulated
+ * 					again: its output_*.txt is rewritten from the result.
+ *
+ * 					The memoizable runs go through a pipeline of stages, connected by
+ * 					bounded queues, so the files are read and the outputs written while
+ * 					other files are simulated:
+ * 					read		reads the input and looks up its result
+ * 					predecode	parses the lines and decodes the opcodes
+ * 					execute		runs the simulations, one thread per processor
+ * 					report		writes the outputs and the results
+ * 					A stage that gets ahead of the next one waits when the queue
+ * 					between them is full.
+ * @version:		1.0
+ * @created:  		10/18/2026, 16:22:03
+ * @modified: 		10/18/2026, 16:22:03
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class BatchRunner {
+	public static final String RESULTS = "arquivos/cache/results";
+	private static final String VERSION = "3";		// changes when the output of a run changes
+	private static final int QUEUE = 4;				// files waiting between two stages
+
+	private OptionsCPU options;
+	private String resultsDir;
+	private int simulated = 0;
+	private int cached = 0;
+	private int errors = 0;
+
+	/*****************************************************************************************
+	 * Name: 		Job
+	 * Description: A file going through the stages of the pipeline
+	 *****************************************************************************************/
+	private static final class Job {
+		private static final Job END = new Job(-1, null);
+
+		private final int index;
+		private final String strFile;
+		private final long start = System.nanoTime();
+		private Path result;
+		private String image;
+		private ThumbInstructions simulation;
+		private String output;
+		private String status;
+
+		private Job(int index, String strFile) {
+			this.index = index;
+			this.strFile = strFile;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		BatchRunner
+	 * Description: Constructor method. The results are kept in resultsDir.
+	 *****************************************************************************************/
+	public BatchRunner(OptionsCPU options, String resultsDir) {
+		this.options = options;
+		this.resultsDir = resultsDir;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		isMemoizable
+	 * Description: Returns true if the output of a run only depends on the input file and
+	 * 				on the options. Runs that write other files or start from a snapshot or
+	 * 				a checkpoint are always simulated.
+	 * Return:		boolean
+	 *****************************************************************************************/
+	public boolean isMemoizable() {
+		return !options.hasSideOutputs() && options.getRestoreFile() == null && options.getResumeFile() == null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Runs the .txt files of the directory in the order of their names and
+	 * 				returns a report of the runs
+	 * Return:		String
+	 *****************************************************************************************/
+	public String run(String dir) throws IOException {
+		List<String> files = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(dir), "*.txt")) {
+			for (Path path : stream)
+				files.add(path.getFileName().toString());
+		}
+		Collections.sort(files);
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                               Batch                               |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		if(isMemoizable())
+			for (String line : pipeline(dir, files))
+				sb.append(line);
+		else
+			for (String file : files) {
+				long start = System.nanoTime();
+				String status = runFile(dir + "/" + file);
+				sb.append(String.format("%-32s %-10s %10.2f ms\n", file, status, (System.nanoTime() - start) / 1e6));
+			}
+		sb.append(String.format("Simulated: %d, cached: %d", simulated, cached));
+		if(errors > 0)
+			sb.append(String.format(", errors: %d", errors));
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		pipeline
+	 * Description: Runs the files through the stages of the pipeline and returns the lines 
+	 * 				of the report, in the order of the files. The report stage runs in the 
+	 * 				calling thread.
+	 * Return:		String[]
+	 *****************************************************************************************/
+	private String[] pipeline(String dir, List<String> files) {
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+		BlockingQueue<Job> read = new ArrayBlockingQueue<Job>(QUEUE);
+		BlockingQueue<Job> decoded = new ArrayBlockingQueue<Job>(QUEUE);
+		BlockingQueue<Job> done = new ArrayBlockingQueue<Job>(QUEUE);
+		List<Thread> stages = new ArrayList<Thread>();
+		stages.add(new Thread(() -> readStage(dir, files, read, done), "batch-read"));
+		stages.add(new Thread(() -> predecodeStage(read, decoded, done, threads), "batch-predecode"));
+		for(int i = 0; i < threads; i++)
+			stages.add(new Thread(() -> executeStage(decoded, done), "batch-execute-" + i));
+		for (Thread stage : stages) {
+			stage.setDaemon(true);
+			stage.start();
+		}
+		String[] lines = new String[files.size()];
+		try {
+			for(int ended = 0; ended < threads; ) {
+				Job job = done.take();
+				if(job == Job.END)
+					ended++;
+				else
+					lines[job.index] = reportStage(job, files.get(job.index));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (Thread stage : stages)
+				stage.interrupt();
+		}
+		for(int i = 0; i < lines.length; i++)
+			if(lines[i] == null)
+				lines[i] = String.format("%-32s %-10s\n", files.get(i), "not run");
+		return lines;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		readStage
+	 * Description: Reads the input files. A file already run goes straight to the report 
+	 * 				stage with its result.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void readStage(String dir, List<String> files, BlockingQueue<Job> read, BlockingQueue<Job> done) {
+		try {
+			for(int i = 0; i < files.size(); i++) {
+				Job job = new Job(i, dir + "/" + files.get(i));
+				try {
+					byte[] input = Files.readAllBytes(Paths.get(job.strFile));
+					job.result = Paths.get(resultsDir, key(input) + ".txt");
+					if(Files.exists(job.result)) {
+						job.output = Files.readString(job.result, StandardCharsets.UTF_8);
+						job.status = "cached";
+						done.put(job);
+						continue;
+					}
+					job.image = new String(input, StandardCharsets.UTF_8);
+					read.put(job);
+				}
+				catch (IOException e) {
+					job.status = "error: " + e.getMessage();
+					done.put(job);
+				}
+			}
+			read.put(Job.END);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		predecodeStage
+	 * Description: Parses and decodes the programs, and ends the threads of the execute 
+	 * 				stage after the last one
+	 * Return:		void
+	 *****************************************************************************************/
+	private void predecodeStage(BlockingQueue<Job> read, BlockingQueue<Job> decoded, BlockingQueue<Job> done,
+			int threads) {
+		try {
+			Job job;
+			while((job = read.take()) != Job.END) {
+				try {
+					job.simulation = ThumbInstructions.loadImage(job.strFile, job.image, options);
+					job.image = null;
+					decoded.put(job);
+				}
+				catch (RuntimeException e) {
+					job.status = "error: " + e;
+					done.put(job);
+				}
+			}
+			for(int i = 0; i < threads; i++)
+				decoded.put(Job.END);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		executeStage
+	 * Description: Runs the simulations and formats their outputs
+	 * Return:		void
+	 *****************************************************************************************/
+	private void executeStage(BlockingQueue<Job> decoded, BlockingQueue<Job> done) {
+		try {
+			Job job;
+			while((job = decoded.take()) != Job.END) {
+				try {
+					job.simulation.run();
+					job.output = job.simulation.showOutput();
+					job.status = "simulated";
+				}
+				catch (RuntimeException e) {
+					job.status = "error: " + e;
+				}
+				job.simulation = null;
+				done.put(job);
+			}
+			done.put(Job.END);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		reportStage
+	 * Description: Writes the output and the result of the job and returns its line of the
+	 * 				report
+	 * Return:		String
+	 *****************************************************************************************/
+	private String reportStage(Job job, String file) {
+		String message = "";
+		if(job.status.startsWith("error: ")) {
+			message = "    " + job.status.substring(7) + "\n";
+			job.status = "error";
+			errors++;
+		}
+		else {
+			ThumbInstructions.writeOutput(ThumbInstructions.getInputFile(job.strFile), job.output);
+			if(job.status.equals("cached"))
+				cached++;
+			else {
+				try {
+					write(job.result, job.output);
+				}
+				catch (IOException e) {
+					message = "    " + e.getMessage() + "\n";
+				}
+				simulated++;
+			}
+		}
+		return String.format("%-32s %-10s %10.2f ms\n", file, job.status, (System.nanoTime() - job.start) / 1e6) 
+				+ message;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		runFile
+	 * Description: Simulates the input file, for the runs that are not memoizable, which
+	 * 				write their own output. Returns "simulated".
+	 * Return:		String
+	 *****************************************************************************************/
+	private String runFile(String strFile) {
+		new ThumbInstructions(strFile, options);
+		simulated++;
+		return "simulated";
+	}
+
+	/*****************************************************************************************
+	 * Name: 		key
+	 * Description: Returns the SHA-256 of the input file and of the options in hexadecimal
+	 * Return:		String
+	 *****************************************************************************************/
+	private String key(byte[] input) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(input);
+			digest.update(("\n" + VERSION + ";" + options.getConfig()).getBytes(StandardCharsets.UTF_8));
+			StringBuilder str = new StringBuilder();
+			for (byte b : digest.digest())
+				str.append(String.format("%02x", b));
+			return str.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the result in a temporary file and renames it, so a result is
+	 * 				never read half written
+	 * Return:		void
+	 *****************************************************************************************/
+	private static void write(Path result, String output) throws IOException {
+		Files.createDirectories(result.getParent());
+		Path temp = Files.createTempFile(result.getParent(), "result", ".tmp");
+		try {
+			Files.writeString(temp, output, StandardCharsets.UTF_8);
+			Files.move(temp, result, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	public int getSimulated() {
+		return simulated;
+	}
+
+	public int getCached() {
+		return cached;
+	}
+
+}
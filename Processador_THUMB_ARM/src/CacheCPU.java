@@ -0,0 +1,186 @@
+/*************************************************************************************
+ * @filename: 		CacheCPU.java
+ * @description:	Class that simulates a set associative data cache fed by the
+ * 					accesses to the data and stack memories.
+ * @version:		1.0
+ * @created:  		10/18/2026, 11:20:14
+ * @modified: 		10/18/2026, 11:20:14
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CacheCPU {
+	public static final int DATA = 0;
+	public static final int STACK = 1;
+	private static final String[] NAME_REGION = {"Data Memory", "Stack Memory"};
+	private static final int TOP = 10;
+	protected enum policyType{LRU, FIFO, RANDOM};
+
+	private int sizeCache;
+	private int sizeLine;
+	private int ways;
+	private policyType policy;
+	private int shiftLine;
+	private int maskSet;
+
+	/************************************************************************
+	 * Lines of the cache, the line of way w of the set s is in s*ways + w.
+	 * tag = -1 if the line is empty. stamp is the time of the last access
+	 * (LRU) or of the fill (FIFO).
+	 ************************************************************************/
+	private long[] tag;
+	private long[] stamp;
+	private long time = 0;
+	private long seed = 0x2545F4914F6CDD1DL;
+
+	private long[] hitRegion = new long[2];
+	private long[] missRegion = new long[2];
+	private long[] hitPc;			// indexed by pc/2
+	private long[] missPc;			// indexed by pc/2
+
+	/*****************************************************************************************
+	 * Name: 		CacheCPU
+	 * Description: Constructor method. The sizes are in bytes and must be powers of two.
+	 * 				sizeProgram is the number of opcodes in programMemory.
+	 *****************************************************************************************/
+	public CacheCPU(int sizeCache, int sizeLine, int ways, policyType policy, int sizeProgram)
+			throws IllegalArgumentException {
+		if(Integer.bitCount(sizeCache) != 1 || Integer.bitCount(sizeLine) != 1 || ways < 1
+				|| sizeCache % (sizeLine * ways) != 0 || Integer.bitCount(sizeCache / (sizeLine * ways)) != 1)
+			throw new IllegalArgumentException("Invalid cache geometry: " + sizeCache + " bytes, "
+				+ sizeLine + " bytes per line, " + ways + " ways");
+		this.sizeCache = sizeCache;
+		this.sizeLine = sizeLine;
+		this.ways = ways;
+		this.policy = policy;
+		shiftLine = Integer.numberOfTrailingZeros(sizeLine);
+		maskSet = sizeCache / (sizeLine * ways) - 1;
+		tag = new long[sizeCache / sizeLine];
+		stamp = new long[sizeCache / sizeLine];
+		Arrays.fill(tag, -1);
+		hitPc = new long[sizeProgram];
+		missPc = new long[sizeProgram];
+	}
+
+	/*****************************************************************************************
+	 * Name: 		forSpec
+	 * Description: Creates a cache from the specification "size,line,ways,policy",
+	 * 				e.g. "1024,16,2,lru"
+	 * Return:		CacheCPU
+	 *****************************************************************************************/
+	public static CacheCPU forSpec(String spec, int sizeProgram) throws IllegalArgumentException {
+		String[] str = spec.split(",");
+		try {
+			return new CacheCPU(Integer.parseInt(str[0]), Integer.parseInt(str[1]),
+					Integer.parseInt(str[2]), policyType.valueOf(str[3].toUpperCase()), sizeProgram);
+		}
+		catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid cache specification: " + spec 
+					+ " (size,line,ways,lru|fifo|random)");
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		access
+	 * Description: Accesses the address of the region by the instruction at pc.
+	 * 				Misses allocate the line, for reads and for writes.
+	 * Return:		void
+	 *****************************************************************************************/
+	public void access(int address, int pc, int region) {
+		long line = (address & 0xFFFFFFFFL) >>> shiftLine;
+		int first = ((int) line & maskSet) * ways;
+		time++;
+		for(int i = first; i < first + ways; i++) {
+			if(tag[i] == line) {
+				if(policy == policyType.LRU)
+					stamp[i] = time;
+				hitRegion[region]++;
+				if((pc >>> 1) < hitPc.length)
+					hitPc[pc >>> 1]++;
+				return;
+			}
+		}
+		missRegion[region]++;
+		if((pc >>> 1) < missPc.length)
+			missPc[pc >>> 1]++;
+		tag[victim(first)] = line;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		victim
+	 * Description: Returns the line of the set that will be replaced. Empty lines are used
+	 * 				first.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int victim(int first) {
+		int victim = first;
+		for(int i = first; i < first + ways; i++) {
+			if(tag[i] == -1) {
+				stamp[i] = time;
+				return i;
+			}
+			if(stamp[i] < stamp[victim])
+				victim = i;
+		}
+		if(policy == policyType.RANDOM) {
+			seed ^= seed << 13;
+			seed ^= seed >>> 7;
+			seed ^= seed << 17;
+			victim = first + (int) ((seed >>> 1) % ways);
+		}
+		stamp[victim] = time;
+		return victim;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		report
+	 * Description: Returns the hit and miss rates of each region and of the instructions
+	 * 				with more misses, annotated with their disassembly.
+	 * Return:		String
+	 *****************************************************************************************/
+	public String report(List<String> listDisassembly) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                            Data Cache                             |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(String.format("Size: %d bytes, line: %d bytes, ways: %d, sets: %d, policy: %s\n",
+				sizeCache, sizeLine, ways, maskSet + 1, policy));
+		sb.append(String.format("\n%-16s %12s %12s %12s %9s\n", "Region", "Accesses", "Hits",
+				"Misses", "Hit rate"));
+		long hits = 0, misses = 0;
+		for(int i = 0; i < NAME_REGION.length; i++) {
+			sb.append(line(NAME_REGION[i], hitRegion[i], missRegion[i]));
+			hits += hitRegion[i];
+			misses += missRegion[i];
+		}
+		sb.append(line("Total", hits, misses));
+
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for(int i = 0; i < missPc.length; i++)
+			if(hitPc[i] + missPc[i] > 0)
+				list.add(i);
+		list.sort((a, b) -> missPc[a] != missPc[b] ? Long.compare(missPc[b], missPc[a])
+				: Long.compare(hitPc[b], hitPc[a]));
+		sb.append(String.format("\n%-16s %12s %12s %12s %9s   %s\n", "Adress", "Accesses", "Hits",
+				"Misses", "Hit rate", "Disassembly"));
+		for(int k = 0; k < list.size() && k < TOP; k++) {
+			int i = list.get(k);
+			String address = String.format("0x%08x", i*2);
+			sb.append(line(address, hitPc[i], missPc[i]).replace("\n", "   " + listDisassembly.get(i) + "\n"));
+		}
+		return sb.toString();
+	}
+
+	private String line(String name, long hits, long misses) {
+		return String.format("%-16s %12d %12d %12d %8.2f%%\n", name, hits + misses, hits, misses,
+				hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses));
+	}
+
+}
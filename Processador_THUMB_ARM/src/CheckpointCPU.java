@@ -0,0 +1,272 @@
+/*************************************************************************************
+ * @filename: 		CheckpointCPU.java
+ * @description:	Class that keeps checkpoints of a simulation in a memory-mapped
+ * 					file. Each checkpoint only writes the memory pages changed since
+ * 					the previous one, so a long run can be checkpointed often and
+ * 					resumed after a crash or a restart.
+ *
+ * 					Layout (big-endian):
+ * 					2 headers of SIZE_HEADER bytes, the valid one with the largest
+ * 					sequence is the last checkpoint:
+ * 					"THCP" <version-2b> <0-2b> <sequence-8b> <slots-4b> <R0..R15-4b each>
+ * 					<cpsr-4b> <contMemory-4b> <bl-1b> <attPc-1b> <steps-4b> <cycles-8b>
+ * 					<crc32-4b>
+ * 					followed by the slots, one per page of a memory:
+ * 					<memory-4b> <page-4b> and 2 copies of <sequence-8b> <present-32b>
+ * 					<values-1024b>
+ * 					A checkpoint writes the copy that is not the current one, then the
+ * 					header, so the previous checkpoint is valid until the new header is.
+ * @version:		1.0
+ * @created:  		10/18/2026, 15:05:12
+ * @modified: 		10/18/2026, 15:05:12
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+public class CheckpointCPU {
+	private static final int MAGIC = 0x54484350;		// "THCP"
+	private static final short VERSION = 1;
+	private static final int SIZE_HEADER = 128;
+	private static final int SIZE_STATE = 106;			// header without the crc
+	private static final int SIZE_COPY = 8 + PagedMemory.SIZE_PAGE / 8 + PagedMemory.SIZE_PAGE * 4;
+	private static final int SIZE_SLOT = 8 + 2 * SIZE_COPY;
+	private static final int MEMORIES = 3;				// program, data and stack
+
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	private long sequence = 0;			// sequence of the last valid checkpoint
+	private int header = 1;				// header of the last valid checkpoint
+	private ArrayList<Long> slotKey = new ArrayList<Long>();
+	private HashMap<Long, Integer> slots = new HashMap<Long, Integer>();
+
+	/************************************************************************
+	 * Memories of the last checkpoint, forked from the memories of the
+	 * simulation. A page of the simulation that is not the same object of
+	 * the page in last was written since then.
+	 ************************************************************************/
+	private PagedMemory[] last = null;
+
+	/*****************************************************************************************
+	 * Name: 		CheckpointCPU
+	 * Description: Constructor method. Opens the file, keeping the checkpoints in it if
+	 * 				resume == true or discarding them otherwise.
+	 *****************************************************************************************/
+	public CheckpointCPU(String file, boolean resume) throws IOException {
+		channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if(!resume)
+			channel.truncate(0);
+		long size = channel.size();
+		map(Math.max(size, 2 * SIZE_HEADER + 16 * SIZE_SLOT));
+		if(size > 0)
+			open(file);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		map
+	 * Description: Maps the first size bytes of the file, growing it if needed
+	 * Return:		void
+	 *****************************************************************************************/
+	private void map(long size) throws IOException {
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		open
+	 * Description: Finds the last valid checkpoint and its slots. The copies written by
+	 * 				a checkpoint that was not completed are discarded.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void open(String file) throws IOException {
+		header = -1;
+		for(int h = 0; h < 2; h++) {
+			if(valid(h) && (header == -1 || map.getLong(h * SIZE_HEADER + 8) > sequence)) {
+				header = h;
+				sequence = map.getLong(h * SIZE_HEADER + 8);
+			}
+		}
+		if(header == -1)
+			throw new IOException("Not a checkpoint file: " + file);
+		int count = map.getInt(header * SIZE_HEADER + 16);
+		for(int i = 0; i < count; i++) {
+			int position = 2 * SIZE_HEADER + i * SIZE_SLOT;
+			long key = key(map.getInt(position), map.getInt(position + 4));
+			slotKey.add(key);
+			slots.put(key, i);
+			for(int c = 0; c < 2; c++)
+				if(map.getLong(position + 8 + c * SIZE_COPY) > sequence)
+					map.putLong(position + 8 + c * SIZE_COPY, 0);
+		}
+		map.force();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		valid
+	 * Description: Returns true if the header h has the magic number and the right crc
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean valid(int h) {
+		int position = h * SIZE_HEADER;
+		if(map.getInt(position) != MAGIC || map.getShort(position + 4) != VERSION)
+			return false;
+		return map.getInt(position + SIZE_STATE) == crc(position);
+	}
+
+	private int crc(int position) {
+		CRC32 crc = new CRC32();
+		crc.update(map.slice(position, SIZE_STATE));
+		return (int) crc.getValue();
+	}
+
+	private static long key(int memory, int number) {
+		return ((long) memory << 32) | (number & 0xFFFFFFFFL);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		attach
+	 * Description: Tells that the memories are equal to the last checkpoint, e.g. after
+	 * 				they were restored from it, so the next checkpoint only writes the pages
+	 * 				changed since now
+	 * Return:		void
+	 *****************************************************************************************/
+	public void attach(PagedMemory[] memories) {
+		release();
+		last = new PagedMemory[MEMORIES];
+		for(int m = 0; m < MEMORIES; m++)
+			last[m] = memories[m].fork();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes a checkpoint with the state and the pages of the memories changed
+	 * 				since the last checkpoint
+	 * Return:		void
+	 *****************************************************************************************/
+	public void write(int[] reg, int regCPSR, int contMemory, boolean bl, boolean attPc, int steps,
+			long cycles, PagedMemory[] memories) throws IOException {
+		long next = sequence + 1;
+		for(int m = 0; m < MEMORIES; m++) {
+			int[] numbers = last != null ? memories[m].changedPages(last[m])
+					: memories[m].changedPages(new PagedMemory());
+			for (int number : numbers)
+				writePage(m, number, memories[m], next);
+		}
+		map.force();
+
+		int position = (1 - header) * SIZE_HEADER;
+		map.position(position);
+		map.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(next).putInt(slotKey.size());
+		for(int i = 0; i < 16; i++)
+			map.putInt(reg[i]);
+		map.putInt(regCPSR).putInt(contMemory).put((byte) (bl ? 1 : 0)).put((byte) (attPc ? 1 : 0));
+		map.putInt(steps).putLong(cycles);
+		map.putInt(crc(position));
+		map.force();
+		header = 1 - header;
+		sequence = next;
+		attach(memories);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		writePage
+	 * Description: Writes the page in the copy of its slot that is not the current one,
+	 * 				creating the slot if the page is new
+	 * Return:		void
+	 *****************************************************************************************/
+	private void writePage(int memory, int number, PagedMemory pagedMemory, long next) throws IOException {
+		long key = key(memory, number);
+		Integer slot = slots.get(key);
+		if(slot == null) {
+			slot = slotKey.size();
+			long end = 2 * SIZE_HEADER + (long) (slot + 1) * SIZE_SLOT;
+			if(end > map.capacity())
+				map(Math.max(end, 2L * map.capacity()));
+			map.putInt(2 * SIZE_HEADER + slot * SIZE_SLOT, memory);
+			map.putInt(2 * SIZE_HEADER + slot * SIZE_SLOT + 4, number);
+			map.putLong(2 * SIZE_HEADER + slot * SIZE_SLOT + 8, 0);
+			map.putLong(2 * SIZE_HEADER + slot * SIZE_SLOT + 8 + SIZE_COPY, 0);
+			slotKey.add(key);
+			slots.put(key, slot);
+		}
+		int position = 2 * SIZE_HEADER + slot * SIZE_SLOT + 8;
+		if(map.getLong(position) > map.getLong(position + SIZE_COPY))
+			position += SIZE_COPY;
+		map.position(position + 8);
+		pagedMemory.writePage(number, map);
+		map.putLong(position, next);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Returns the last checkpoint as a snapshot
+	 * Return:		SnapshotCPU
+	 *****************************************************************************************/
+	public SnapshotCPU read() throws IOException {
+		if(sequence == 0)
+			throw new IOException("There is no checkpoint in the file");
+		ArrayList<Map<Integer, Integer>> memories = new ArrayList<Map<Integer, Integer>>();
+		for(int m = 0; m < MEMORIES; m++)
+			memories.add(new TreeMap<Integer, Integer>());
+		for(int slot = 0; slot < slotKey.size(); slot++) {
+			int position = 2 * SIZE_HEADER + slot * SIZE_SLOT;
+			int memory = map.getInt(position);
+			int number = map.getInt(position + 4);
+			position += 8;
+			if(map.getLong(position + SIZE_COPY) > map.getLong(position))
+				position += SIZE_COPY;
+			if(map.getLong(position) == 0)
+				continue;
+			for(int offset = 0; offset < PagedMemory.SIZE_PAGE; offset++) {
+				long present = map.getLong(position + 8 + (offset >>> 6) * 8);
+				if(((present >>> offset) & 0x1) == 1)
+					memories.get(memory).put((number << PagedMemory.BITS_PAGE) | offset,
+							map.getInt(position + 8 + PagedMemory.SIZE_PAGE / 8 + offset * 4));
+			}
+		}
+		int position = header * SIZE_HEADER + 20;
+		int[] reg = new int[16];
+		for(int i = 0; i < 16; i++)
+			reg[i] = map.getInt(position + i * 4);
+		position += 64;
+		return new SnapshotCPU(reg, map.getInt(position), memories.get(0), memories.get(1), memories.get(2),
+				map.getInt(position + 4), map.get(position + 8) == 1, map.get(position + 9) == 1,
+				map.getInt(position + 10), map.getLong(position + 14));
+	}
+
+	/*****************************************************************************************
+	 * Name: 		release
+	 * Description: Releases the pages shared with the memories of the last checkpoint
+	 * Return:		void
+	 *****************************************************************************************/
+	private void release() {
+		if(last != null)
+			for (PagedMemory memory : last)
+				memory.clear();
+		last = null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		close
+	 * Description: Closes the file. The last checkpoint was already written.
+	 * Return:		void
+	 *****************************************************************************************/
+	public void close() throws IOException {
+		release();
+		channel.close();
+	}
+
+}
@@ -0,0 +1,392 @@
+/*************************************************************************************
+ * @filename: 		ClusterCoordinator.java
+ * @description:	Class that runs the input files of a directory on several worker
+ * 					JVMs, each one a SimulationServer, so large programs do not share
+ * 					the heap and the GC of a single JVM. The workers are started as
+ * 					local processes on the loopback interface or are servers already
+ * 					running at the given addresses.
+ *
+ * 					The files are split among the workers, and a worker without files
+ * 					steals the last ones of another worker. Each worker is pinged on
+ * 					its own connection, and a worker that does not answer in TIMEOUT
+ * 					ms, or whose connection fails, is lost: its file in progress and
+ * 					its files not yet run are run by the other workers.
+ * @version:		1.0
+ * @created:  		10/18/2026, 18:47:33
+ * @modified: 		10/18/2026, 18:47:33
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClusterCoordinator {
+	private static final int HEARTBEAT = 500;		// ms between two PINGs
+	private static final int TIMEOUT = 3000;		// ms without an answer to a PING
+	private static final int IDLE = 10;				// ms waiting for a file in progress
+
+	private OptionsCPU options;
+	private String workers;
+	private List<Worker> listWorkers = new ArrayList<Worker>();
+	private List<Process> listProcesses = new ArrayList<Process>();
+	private ConcurrentHashMap<String, String> results = new ConcurrentHashMap<String, String>();
+	private AtomicInteger remaining = new AtomicInteger();
+	private AtomicInteger stolen = new AtomicInteger();
+	private AtomicInteger redispatched = new AtomicInteger();
+
+	/*****************************************************************************************
+	 * Name: 		Worker
+	 * Description: A worker JVM, with its files not yet run
+	 *****************************************************************************************/
+	private static final class Worker {
+		private final String host;
+		private final int port;
+		private final ConcurrentLinkedDeque<String> tasks = new ConcurrentLinkedDeque<String>();
+		private volatile boolean alive = true;
+		private volatile boolean lost = false;
+		private volatile Socket socket;
+		private int runs = 0;
+
+		private Worker(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+
+		@Override
+		public String toString() {
+			return host + ":" + port;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		ClusterCoordinator
+	 * Description: Constructor method. workers is the number of local workers to start, or
+	 * 				the addresses host:port of running servers separated by commas.
+	 *****************************************************************************************/
+	public ClusterCoordinator(OptionsCPU options, String workers) {
+		this.options = options;
+		this.workers = workers;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Runs the .txt files of the directory on the workers and returns a report
+	 * 				of the runs. Only the options -timing, -flight and -steps are sent to the
+	 * 				workers.
+	 * Return:		String
+	 *****************************************************************************************/
+	public String run(String dir) throws IOException, IllegalArgumentException {
+		if(options.hasSideOutputs() || options.getRestoreFile() != null || options.getResumeFile() != null)
+			throw new IllegalArgumentException("-cluster only runs with the options -timing, -flight and -steps");
+		List<String> files = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(dir), "*.txt")) {
+			for (Path path : stream)
+				files.add(path.getFileName().toString());
+		}
+		Collections.sort(files);
+		List<Thread> runners = new ArrayList<Thread>();
+		List<Thread> heartbeats = new ArrayList<Thread>();
+		try {
+			start();
+			for(int i = 0; i < files.size(); i++)
+				listWorkers.get(i % listWorkers.size()).tasks.add(files.get(i));
+			remaining.set(files.size());
+			for (Worker worker : listWorkers) {
+				runners.add(new Thread(() -> runWorker(worker, dir), "cluster-" + worker));
+				heartbeats.add(new Thread(() -> heartbeat(worker), "heartbeat-" + worker));
+			}
+			for(int i = 0; i < runners.size(); i++) {
+				heartbeats.get(i).setDaemon(true);
+				heartbeats.get(i).start();
+				runners.get(i).start();
+			}
+			for (Thread runner : runners)
+				runner.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			for (Thread heartbeat : heartbeats)
+				heartbeat.interrupt();
+			for (Worker worker : listWorkers)
+				worker.alive = false;
+			for (Process process : listProcesses)
+				process.destroy();
+		}
+		return report(files);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		start
+	 * Description: Starts the local workers on free ports of the loopback interface, or adds
+	 * 				the workers of the addresses
+	 * Return:		void
+	 *****************************************************************************************/
+	private void start() throws IOException, IllegalArgumentException {
+		if(!workers.matches("\\d+")) {
+			for (String address : workers.split(",")) {
+				int colon = address.lastIndexOf(':');
+				if(colon < 0)
+					throw new IllegalArgumentException("Invalid address of a worker: " + address);
+				listWorkers.add(new Worker(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+			}
+			return;
+		}
+		int n = Integer.parseInt(workers);
+		if(n < 1)
+			throw new IllegalArgumentException("Invalid number of workers: " + n);
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		for(int i = 0; i < n; i++)
+			listProcesses.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "App",
+					"-server", "0").redirectErrorStream(true).start());
+		for (Process process : listProcesses) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			String line = in.readLine();
+			if(line == null || !line.startsWith("Listening on "))
+				throw new IOException("A worker did not start: " + line);
+			listWorkers.add(new Worker("127.0.0.1", Integer.parseInt(line.substring(line.lastIndexOf(':') + 1))));
+			Thread drain = new Thread(() -> {
+				try {
+					while(in.readLine() != null);
+				}
+				catch (IOException e) {
+				}
+			}, "cluster-drain");
+			drain.setDaemon(true);
+			drain.start();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		runWorker
+	 * Description: Sends files to the worker until all the files are run or the worker is
+	 * 				lost. A file whose run is interrupted by the loss is put back, and a file
+	 * 				whose output can not be written is reported as an error.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void runWorker(Worker worker, String dir) {
+		try (
+				Socket socket = connect(worker);
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			)
+		{
+			worker.socket = socket;
+			while(worker.alive && remaining.get() > 0) {
+				String file = next(worker);
+				if(file == null) {
+					Thread.sleep(IDLE);
+					continue;
+				}
+				String strFile = dir + "/" + file;
+				List<String> lines;
+				try {
+					lines = Files.readAllLines(Paths.get(strFile));
+				}
+				catch (IOException e) {
+					finish(file, "error", worker, 0, e.getMessage());
+					continue;
+				}
+				long start = System.nanoTime();
+				try {
+					request(worker, strFile, lines, in, out, start);
+				}
+				catch (IOException e) {
+					worker.tasks.addFirst(file);
+					redispatched.incrementAndGet();
+					throw e;
+				}
+				catch (RuntimeException e) {
+					finish(file, "error", worker, start, e.toString());
+				}
+			}
+		}
+		catch (IOException e) {
+			lose(worker);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		request
+	 * Description: Runs the file on the worker and writes its output
+	 * Return:		void
+	 *****************************************************************************************/
+	private void request(Worker worker, String strFile, List<String> lines, BufferedReader in, PrintWriter out,
+			long start) throws IOException {
+		out.print("RUN -steps " + options.getMaxSteps() + " -flight " + options.getFlight()
+				+ (options.getTiming() != null ? " -timing " + options.getTiming() : "") + "\n");
+		for (String line : lines)
+			if(!line.isBlank() && !line.equals("END"))
+				out.print(line + "\n");
+		out.print("END\n");
+		out.flush();
+		String status = in.readLine();
+		StringBuilder output = new StringBuilder();
+		String line;
+		while((line = in.readLine()) != null && !line.equals("END"))
+			output.append(line).append("\n");
+		if(status == null || line == null)
+			throw new IOException("Connection closed by " + worker);
+		String file = Paths.get(strFile).getFileName().toString();
+		if(status.startsWith("OK ")) {
+			ThumbInstructions.writeOutput(file, output.toString());
+			finish(file, "simulated", worker, start, null);
+		}
+		else
+			finish(file, "error", worker, start, status.substring(status.indexOf(' ') + 1));
+	}
+
+	/*****************************************************************************************
+	 * Name: 		finish
+	 * Description: Keeps the line of the report of a file run
+	 * Return:		void
+	 *****************************************************************************************/
+	private void finish(String file, String status, Worker worker, long start, String message) {
+		String time = start == 0 ? "" : String.format("%10.2f ms", (System.nanoTime() - start) / 1e6);
+		results.put(file, String.format("%-32s %-10s %-21s %s", file, status, worker, time)
+				+ (message != null ? "\n    " + message : ""));
+		worker.runs++;
+		remaining.decrementAndGet();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		next
+	 * Description: Returns the next file of the worker, or the last file of another worker
+	 * 				if it has none. Returns null if there is no file to run.
+	 * Return:		String
+	 *****************************************************************************************/
+	private String next(Worker worker) {
+		String file = worker.tasks.pollFirst();
+		if(file != null)
+			return file;
+		int index = listWorkers.indexOf(worker);
+		for(int i = 1; i < listWorkers.size(); i++) {
+			file = listWorkers.get((index + i) % listWorkers.size()).tasks.pollLast();
+			if(file != null) {
+				stolen.incrementAndGet();
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		heartbeat
+	 * Description: Pings the worker on its own connection every HEARTBEAT ms and loses it if
+	 * 				it does not answer in TIMEOUT ms
+	 * Return:		void
+	 *****************************************************************************************/
+	private void heartbeat(Worker worker) {
+		try (
+				Socket socket = connect(worker);
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			)
+		{
+			socket.setSoTimeout(TIMEOUT);
+			while(worker.alive) {
+				out.print("PING\n");
+				out.flush();
+				if(!"PONG".equals(in.readLine()))
+					throw new IOException("No answer of " + worker);
+				TimeUnit.MILLISECONDS.sleep(HEARTBEAT);
+			}
+		}
+		catch (IOException e) {
+			lose(worker);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		connect
+	 * Description: Opens a connection to the worker
+	 * Return:		Socket
+	 *****************************************************************************************/
+	private static Socket connect(Worker worker) throws IOException {
+		Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(worker.host, worker.port), TIMEOUT);
+			return socket;
+		}
+		catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		lose
+	 * Description: Marks the worker as lost and closes its connection, so a run in progress
+	 * 				on it fails and its file is put back
+	 * Return:		void
+	 *****************************************************************************************/
+	private static void lose(Worker worker) {
+		if(worker.alive)
+			worker.lost = true;
+		worker.alive = false;
+		Socket socket = worker.socket;
+		if(socket != null) {
+			try {
+				socket.close();
+			}
+			catch (IOException e) {
+			}
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		report
+	 * Description: Returns the report of the runs of the files and of the workers
+	 * Return:		String
+	 *****************************************************************************************/
+	private String report(List<String> files) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                              Cluster                              |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		int lost = 0;
+		for (String file : files) {
+			String result = results.get(file);
+			if(result == null) {
+				result = String.format("%-32s %-10s", file, "not run");
+				lost++;
+			}
+			sb.append(result + "\n");
+		}
+		sb.append("\n");
+		for (Worker worker : listWorkers)
+			sb.append(String.format("Worker %-21s %5d runs%s\n", worker, worker.runs, worker.lost ? " (lost)" : ""));
+		sb.append(String.format("Files: %d, not run: %d, stolen: %d, re-dispatched: %d", files.size(), lost,
+				stolen.get(), redispatched.get()));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,60 @@
+/*************************************************************************************
+ * @filename: 		CycleCounterMMIO.java
+ * @description:	Counter of cycles mapped in the memory bus, in the style of the
+ * 					CYCCNT of the DWT of the Cortex-M, so a program can measure its own
+ * 					sections with LDR. Counts the cycles of the timing model, or the
+ * 					instructions without one, executed before the load. The registers
+ * 					are read-only, the writes are ignored.
+ *
+ * 					Registers:
+ * 					CTRL   (+0x0)	read: 1, the counter is always enabled
+ * 					CYCCNT (+0x4)	read: the 32 low bits of the count
+ * @version:		1.0
+ * @created:  		10/18/2026, 22:31:54
+ * @modified: 		10/18/2026, 22:31:54
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.function.LongSupplier;
+
+public class CycleCounterMMIO extends DeviceMMIO {
+	public static final int CTRL = 0x0;
+	public static final int CYCCNT = 0x4;
+	public static final int SIZE = 0x8;				// bytes of the region
+
+	private LongSupplier clock;
+
+	/*****************************************************************************************
+	 * Name: 		CycleCounterMMIO
+	 * Description: Constructor method. clock returns the count of the simulation.
+	 *****************************************************************************************/
+	public CycleCounterMMIO(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	@Override
+	public int read(int offset) {
+		switch (offset) {
+		case CTRL:
+			return 1;
+		case CYCCNT:
+			return (int) clock.getAsLong();
+		default:
+			return 0;
+		}
+	}
+
+	@Override
+	public void write(int offset, int value) {
+	}
+
+	@Override
+	public String getName() {
+		return "DWT";
+	}
+
+}
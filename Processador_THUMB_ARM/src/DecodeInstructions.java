@@ -18,9 +18,26 @@ public class DecodeInstructions extends OperationsInstructions{
 	
 	/*****************************************************************************************
 	 * Name: 		DecodeInstructions
-	 * Description: Constructor method	
+	 * Description: Constructor method. Disassembles the instruction, see toString()
 	 *****************************************************************************************/
 	public DecodeInstructions(int instruction) {
+		execute(instruction);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		DecodeInstructions
+	 * Description: Constructor method of the subclasses that execute a program	
+	 *****************************************************************************************/
+	protected DecodeInstructions() {
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		execute
+	 * Description: Decodes the instruction. If modeCPU == true, the instruction is executed 
+	 * 				and the PC register updated.
+	 * Return: 		void
+	 *****************************************************************************************/
+	protected void execute(int instruction) {
 		/******************************************************
 		 * The instruction is separated into four nibbles.
 		 * |15 14 13 12|11 10  9  8 |7  6  5  4 |3  2  1 0|
@@ -30,6 +47,7 @@ public class DecodeInstructions extends OperationsInstructions{
 		bits_11_8 	=	(byte) ((instruction >>>  8) & 0xF); 	// (ABCD >>>  8)  ->   AB & 0xF -> B
 		bits_7_4 	= 	(byte) ((instruction >>>  4) & 0xF);	// (ABCD >>>  4)  ->  ABC & 0xF -> C
 		bits_3_0 	= 	(byte) ((instruction >>>  0) & 0xF);    // (ABCD >>>  0)  -> ABCD & 0xF -> D 
+		formattedInstruction = "";
 		
 		/*********************************************
 		 * Calls the method that decodes the opcode 
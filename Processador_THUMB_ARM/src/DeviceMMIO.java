@@ -0,0 +1,47 @@
+/*************************************************************************************
+ * @filename: 		DeviceMMIO.java
+ * @description:	Mother class of the devices mapped in the memory bus (MemoryBus).
+ * 					The registers of a device are words read and written by their
+ * 					offset from the start of its region.
+ * @version:		1.0
+ * @created:  		10/18/2026, 21:52:30
+ * @modified: 		10/18/2026, 21:52:30
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+public abstract class DeviceMMIO {
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Returns the value of the register at the offset
+	 * Return:		int
+	 *****************************************************************************************/
+	public abstract int read(int offset);
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the value to the register at the offset
+	 * Return:		void
+	 *****************************************************************************************/
+	public abstract void write(int offset, int value);
+
+	/*****************************************************************************************
+	 * Name: 		flush
+	 * Description: Writes the buffered output of the device, called at the end of each run
+	 * Return:		void
+	 *****************************************************************************************/
+	public void flush() {
+	}
+
+	/*****************************************************************************************
+	 * Name: 		getName
+	 * Description: Returns the name of the device
+	 * Return:		String
+	 *****************************************************************************************/
+	public abstract String getName();
+
+}
@@ -0,0 +1,257 @@
+/*************************************************************************************
+ * @filename: 		EventScheduler.java
+ * @description:	Queue of the events of the devices, sorted by the simulated time
+ * 					(the cycles with a timing model, else the steps), that drives the
+ * 					timers and raises their interrupts into the CPU. The interrupts are
+ * 					numbered as the exceptions of the Cortex-M (SysTick = 15), the
+ * 					lowest pending number is taken first, only when the I bit of the
+ * 					cpsr is 0 (CPSIE i) and no handler is running.
+ *
+ * 					When the program is idle in a loop that does not write to memory,
+ * 					call the semihosting or read a device, and gets back to the same
+ * 					registers and cpsr at each iteration (e.g. B . or a loop waiting
+ * 					for a flag set by a handler), the iterations until the next event
+ * 					are skipped at once, adding their steps and cycles.
+ * @version:		1.0
+ * @created:  		10/18/2026, 21:18:40
+ * @modified: 		10/18/2026, 21:18:40
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public class EventScheduler {
+	public static final int SYSTICK = 15;					// exception number of the SysTick
+	public static final int EXC_RETURN = 0xFFFFFFF9;		// LR in a handler, returns from it
+
+	/*****************************************************************************
+	 * Action of a device at a time. order keeps the events of the same time in
+	 * the order they were scheduled.
+	 *****************************************************************************/
+	private static class Event {
+		long time;
+		long order;
+		Runnable action;
+
+		Event(long time, long order, Runnable action) {
+			this.time = time;
+			this.order = order;
+			this.action = action;
+		}
+	}
+
+	private PriorityQueue<Event> queue = new PriorityQueue<Event>((a, b) ->
+			a.time != b.time ? Long.compare(a.time, b.time) : Long.compare(a.order, b.order));
+	private List<Runnable> devices = new ArrayList<Runnable>();
+	private long time = 0;
+	private long order = 0;
+	private int pending = 0;						// bit n set if the interrupt n is pending
+	private int[] handlers = new int[32];
+	private boolean active = false;					// a handler is running
+
+	/************************************************************************
+	 * Last iteration of the loop at loopTarget, see idle()
+	 ************************************************************************/
+	private int loopTarget = -1;
+	private int[] loopReg = new int[16];
+	private int loopCPSR;
+	private long loopEffects;
+	private int loopSteps;
+	private long loopTime;
+	private int iterationSteps;
+	private long iterationTime;
+
+	private long countEvents = 0;
+	private long countInterrupts = 0;
+	private long countIdle = 0;
+	private long skippedSteps = 0;
+	private long skippedTime = 0;
+
+	/*****************************************************************************************
+	 * Name: 		forSpec
+	 * Description: Returns a scheduler with a SysTick of the spec <period>:<handler>, the
+	 * 				period in cycles (steps without a timing model) and the address of the
+	 * 				handler, e.g. 1000:0x40, with the devices started at the time
+	 * Return:		EventScheduler
+	 *****************************************************************************************/
+	public static EventScheduler forSpec(String spec, long time) throws IllegalArgumentException {
+		String[] fields = spec.split(":");
+		try {
+			if(fields.length != 2)
+				throw new NumberFormatException();
+			long period = Long.decode(fields[0]);
+			int handler = Integer.decode(fields[1]);
+			if(period < 1 || handler < 0 || (handler & 0x1) == 1)
+				throw new NumberFormatException();
+			EventScheduler scheduler = new EventScheduler();
+			new SysTickTimer(scheduler, period, handler);
+			scheduler.reset(time);
+			return scheduler;
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid SysTick: " + spec);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		addDevice
+	 * Description: Adds a device, start is called by reset() to schedule its first events
+	 * Return:		void
+	 *****************************************************************************************/
+	public void addDevice(Runnable start) {
+		devices.add(start);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		reset
+	 * Description: Discards the events and the pending interrupts and starts the devices
+	 * 				again at the time
+	 * Return:		void
+	 *****************************************************************************************/
+	public void reset(long time) {
+		this.time = time;
+		queue.clear();
+		pending = 0;
+		active = false;
+		loopTarget = -1;
+		countEvents = countInterrupts = countIdle = skippedSteps = skippedTime = 0;
+		for (Runnable start : devices)
+			start.run();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		schedule
+	 * Description: Schedules the action at the time
+	 * Return:		void
+	 *****************************************************************************************/
+	public void schedule(long time, Runnable action) {
+		queue.add(new Event(time, order++, action));
+	}
+
+	/*****************************************************************************************
+	 * Name: 		advance
+	 * Description: Moves the time to now, running the actions of the events until then
+	 * Return:		void
+	 *****************************************************************************************/
+	public void advance(long now) {
+		time = now;
+		while(!queue.isEmpty() && queue.peek().time <= now) {
+			countEvents++;
+			queue.poll().action.run();
+		}
+	}
+
+	public void setHandler(int number, int address) {
+		handlers[number] = address;
+	}
+
+	public void raise(int number) {
+		pending |= 1 << number;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		accept
+	 * Description: Takes the pending interrupt with the lowest number and returns the
+	 * 				address of its handler, or -1 if there is none, the I bit of the cpsr is
+	 * 				1 or a handler is running
+	 * Return:		int
+	 *****************************************************************************************/
+	public int accept(int cpsr) {
+		if(pending == 0 || active || ((cpsr >>> 7) & 0x1) == 1)
+			return -1;
+		int number = Integer.numberOfTrailingZeros(pending);
+		pending &= ~(1 << number);
+		active = true;
+		loopTarget = -1;
+		countInterrupts++;
+		return handlers[number];
+	}
+
+	/*****************************************************************************************
+	 * Name: 		exit
+	 * Description: Ends the running handler
+	 * Return:		void
+	 *****************************************************************************************/
+	public void exit() {
+		active = false;
+		loopTarget = -1;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		idle
+	 * Description: Called after a branch back to reg[15]. effects counts the stores and the
+	 * 				other accesses seen outside of the cpu (semihosting, reads of devices).
+	 * 				If the last iteration of the loop had no effect and got back to the same
+	 * 				registers and cpsr, returns the number of iterations that can be skipped
+	 * 				before the next event and the operation limit, see getIterationSteps()
+	 * 				and getIterationTime(). Else returns 0.
+	 * Return:		long
+	 *****************************************************************************************/
+	public long idle(int[] reg, int cpsr, long effects, int steps, long now, int maxSteps) {
+		if(reg[15] != loopTarget || effects != loopEffects || cpsr != loopCPSR || !Arrays.equals(reg, loopReg)) {
+			loopTarget = reg[15];
+			System.arraycopy(reg, 0, loopReg, 0, 16);
+			loopCPSR = cpsr;
+			loopEffects = effects;
+			loopSteps = steps;
+			loopTime = now;
+			return 0;
+		}
+		iterationSteps = steps - loopSteps;
+		iterationTime = now - loopTime;
+		long iterations = (maxSteps - steps) / iterationSteps;
+		if(!queue.isEmpty())
+			iterations = Math.min(iterations, (queue.peek().time - now - 1) / iterationTime);
+		iterations = Math.max(iterations, 0);
+		loopSteps = steps + (int) (iterations * iterationSteps);
+		loopTime = now + iterations * iterationTime;
+		if(iterations > 0) {
+			countIdle++;
+			skippedSteps += iterations * iterationSteps;
+			skippedTime += iterations * iterationTime;
+		}
+		return iterations;
+	}
+
+	public int getIterationSteps() {
+		return iterationSteps;
+	}
+
+	public long getIterationTime() {
+		return iterationTime;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		show
+	 * Description: Shows the events, the interrupts and the idle loops skipped
+	 * Return:		String
+	 *****************************************************************************************/
+	public String show() {
+		String
+		str  = "\n---------------------------------------------------------------------\n";
+		str +=   "|                              Events                               |";
+		str += "\n---------------------------------------------------------------------\n";
+		str += String.format("Events:        %d\n", countEvents);
+		str += String.format("Interrupts:    %d\n", countInterrupts);
+		str += String.format("Idle skips:    %d\n", countIdle);
+		str += String.format("Steps skipped: %d\n", skippedSteps);
+		str += String.format("Time skipped:  %d", skippedTime);
+		return str;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*************************************************************************************
+ * @filename: 		FlightRecorderCPU.java
+ * @description:	Class that keeps the last executed instructions and the registers
+ * 					after each one in a fixed size ring buffer, to be shown when a run
+ * 					fails.
+ * @version:		1.0
+ * @created:  		10/18/2026, 12:35:48
+ * @modified: 		10/18/2026, 12:35:48
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.List;
+
+public class FlightRecorderCPU {
+	private int size;
+	private int[] pcs;
+	private int[] opcodes;
+	private int[] regs;			// R0-R15 and cpsr of the entry i in i*17
+	private int next = 0;			// entry that will be replaced
+	private long count = 0;		// instructions recorded
+
+	/*****************************************************************************************
+	 * Name: 		FlightRecorderCPU
+	 * Description: Constructor method. size is the number of instructions kept
+	 *****************************************************************************************/
+	public FlightRecorderCPU(int size) {
+		this.size = size;
+		pcs = new int[size];
+		opcodes = new int[size];
+		regs = new int[size * 17];
+	}
+
+	/*****************************************************************************************
+	 * Name: 		record
+	 * Description: Records the opcode executed at pc and the registers after the execution,
+	 * 				replacing the oldest entry
+	 * Return:		void
+	 *****************************************************************************************/
+	public void record(int pc, int opcode, int[] reg, int regCPSR) {
+		int i = next;
+		pcs[i] = pc;
+		opcodes[i] = opcode;
+		System.arraycopy(reg, 0, regs, i * 17, 16);
+		regs[i * 17 + 16] = regCPSR;
+		next = (i + 1 == size) ? 0 : i + 1;
+		count++;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		clear
+	 * Description: Discards the recorded instructions
+	 * Return:		void
+	 *****************************************************************************************/
+	public void clear() {
+		next = 0;
+		count = 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		show
+	 * Description: Shows the recorded instructions, from the oldest to the newest, with
+	 * 				their disassembly and the registers after each one
+	 * Return:		String
+	 *****************************************************************************************/
+	public String show(List<String> listDisassembly) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                          Flight Recorder                          |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(String.format("Last %d of %d instructions executed\n", Math.min(count, size), count));
+		for(long n = Math.max(0, count - size); n < count; n++) {
+			int i = (int) (n % size);
+			int index = pcs[i] >>> 1;
+			String disassembly = index < listDisassembly.size() ? listDisassembly.get(index) : "";
+			sb.append(String.format("\n0x%08x    0x%04x    %s\n", pcs[i], opcodes[i], disassembly));
+			for(int r = 0; r < 16; r++) {
+				sb.append(String.format("R%02d: 0x%08x", r, regs[i * 17 + r]));
+				sb.append(r % 4 == 3 ? "\n" : "  ");
+			}
+			sb.append(String.format("CPSR: 0x%08x\n", regs[i * 17 + 16]));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,539 @@
+/*************************************************************************************
+ * @filename: 		GdbStub.java
+ * @description:	Stub of the remote serial protocol of GDB, so gdb-multiarch can
+ * 					debug a simulation over a TCP port of the loopback interface
+ * 					(target remote localhost:<port>). Reads and writes the registers
+ * 					(R0-R15 and the cpsr as the xPSR of the Cortex-M) and the memory,
+ * 					steps, continues, and sets breakpoints (Z0/Z1) and watchpoints of
+ * 					the data memory (Z2 write, Z3 read, Z4 access).
+ *
+ * 					The addresses of the memory are the ones of the data and stack
+ * 					memories, as seen by the loads and stores of the program. The .text
+ * 					overlaps them, so it is seen at TEXT_BASE + its address (e.g.
+ * 					x/4i 0x08000000 + $pc), as a rom region of the memory map sent to
+ * 					gdb (qXfer:memory-map).
+ *
+ * 					The breakpoints are a bitmap of the PC. It is not checked at each
+ * 					step: at each block boundary (the start and each branch) the next
+ * 					breakpoint after the PC is searched in the bitmap, and the steps of
+ * 					the block only compare the PC to it, so the program runs at the
+ * 					speed of ThumbInstructions.step() until a breakpoint is hit. The
+ * 					watchpoints are only checked at the steps that load or store data,
+ * 					against each address accessed by the step (e.g. all the words of a
+ * 					PUSH or an STMIA).
+ * 					A Ctrl-C of gdb is checked every POLL steps.
+ *
+ * 					With -reverse, gdb can also run backwards (reverse-stepi and
+ * 					reverse-continue, the packets bs and bc), see
+ * 					ThumbInstructions.reverseStep(). Then a fault (e.g. a fetch outside
+ * 					of the .text) stops with SIGSEGV instead of ending the session, so
+ * 					the steps before it can be seen.
+ * @version:		1.0
+ * @created:  		10/18/2026, 23:14:26
+ * @modified: 		10/18/2026, 23:14:26
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class GdbStub {
+	private static final int POLL = 1 << 12;			// steps between two checks of a Ctrl-C
+	private static final int MAX_MEMORY = 1 << 11;		// bytes of a read of the memory
+	private static final int CPSR = 16;					// number of the cpsr for gdb
+	private static final int TEXT_BASE = 0x08000000;	// address of the .text for gdb
+	private static final String TARGET_XML;
+
+	static {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\"?><!DOCTYPE target SYSTEM \"gdb-target.dtd\"><target>");
+		sb.append("<architecture>arm</architecture><feature name=\"org.gnu.gdb.arm.m-profile\">");
+		for(int i = 0; i < 13; i++)
+			sb.append("<reg name=\"r" + i + "\" bitsize=\"32\"/>");
+		sb.append("<reg name=\"sp\" bitsize=\"32\" type=\"data_ptr\"/><reg name=\"lr\" bitsize=\"32\"/>");
+		sb.append("<reg name=\"pc\" bitsize=\"32\" type=\"code_ptr\"/><reg name=\"xpsr\" bitsize=\"32\"/>");
+		sb.append("</feature></target>");
+		TARGET_XML = sb.toString();
+	}
+
+	private ThumbInstructions simulation;
+	private int port;
+	private BitSet breakpoints = new BitSet();		// bit pc / 2 set if there is a breakpoint
+	private List<int[]> watchpoints = new ArrayList<int[]>();	// {type, address, length}
+	private InputStream in;
+	private OutputStream out;
+	private boolean ended = false;
+	private String memoryMap;
+
+	/*****************************************************************************************
+	 * Name: 		GdbStub
+	 * Description: Constructor method. Loads the program of the file, to be debugged on
+	 * 				the port. The operation limit is not used, the program runs until gdb
+	 * 				stops it.
+	 *****************************************************************************************/
+	public GdbStub(String strFile, OptionsCPU options, int port) {
+		this.port = port;
+		simulation = ThumbInstructions.load(strFile, options);
+		simulation.accesses = new int[32];
+		memoryMap = memoryMap(simulation.contMemory);
+		if(options.getReverse() > 0)
+			simulation.enableReverse(options.getReverse());
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Waits for gdb and answers its packets until it detaches or kills the
+	 * 				program
+	 * Return:		void
+	 *****************************************************************************************/
+	public void run() throws IOException {
+		try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+			System.out.println("Listening on " + server.getLocalSocketAddress());
+			try (Socket socket = server.accept()) {
+				socket.setTcpNoDelay(true);
+				in = new BufferedInputStream(socket.getInputStream());
+				out = new BufferedOutputStream(socket.getOutputStream());
+				String packet;
+				while((packet = receive()) != null) {
+					String reply = handle(packet);
+					if(reply == null)
+						break;
+					send(reply);
+				}
+			}
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		receive
+	 * Description: Returns the next packet $<data>#<checksum>, acknowledged with +, or null
+	 * 				if the connection was closed. The packets with a wrong checksum are
+	 * 				answered with - and sent again by gdb.
+	 * Return:		String
+	 *****************************************************************************************/
+	private String receive() throws IOException {
+		while(true) {
+			int c;
+			while((c = in.read()) != '$')
+				if(c < 0)
+					return null;
+			StringBuilder sb = new StringBuilder();
+			int sum = 0;
+			while((c = in.read()) != '#') {
+				if(c < 0)
+					return null;
+				sb.append((char) c);
+				sum += c;
+			}
+			int high = in.read(), low = in.read();
+			if(high < 0 || low < 0)
+				return null;
+			boolean valid = Integer.parseInt("" + (char) high + (char) low, 16) == (sum & 0xFF);
+			out.write(valid ? '+' : '-');
+			out.flush();
+			if(valid)
+				return sb.toString();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		send
+	 * Description: Sends the reply as a packet $<data>#<checksum>
+	 * Return:		void
+	 *****************************************************************************************/
+	private void send(String reply) throws IOException {
+		int sum = 0;
+		for(int i = 0; i < reply.length(); i++)
+			sum += reply.charAt(i);
+		out.write(String.format("$%s#%02x", reply, sum & 0xFF).getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		handle
+	 * Description: Returns the reply of the packet, empty if it is not supported, or null
+	 * 				if the session is over
+	 * Return:		String
+	 *****************************************************************************************/
+	private String handle(String packet) throws IOException {
+		try {
+			switch (packet.charAt(0)) {
+			case '?':
+				return ended ? exitReply() : "S05";
+			case 'g':
+				StringBuilder sb = new StringBuilder();
+				for(int i = 0; i <= CPSR; i++)
+					sb.append(hex(getRegister(i)));
+				return sb.toString();
+			case 'G':
+				for(int i = 0; i <= CPSR && 8 * i + 8 < packet.length(); i++)
+					setRegister(i, register(packet.substring(8 * i + 1, 8 * i + 9)));
+				simulation.clearHistory();
+				return "OK";
+			case 'p':
+				int number = Integer.parseInt(packet.substring(1), 16);
+				return number <= CPSR ? hex(getRegister(number)) : "E01";
+			case 'P':
+				String[] fields = packet.substring(1).split("=");
+				if(Integer.parseInt(fields[0], 16) > CPSR)
+					return "E01";
+				setRegister(Integer.parseInt(fields[0], 16), register(fields[1]));
+				simulation.clearHistory();
+				return "OK";
+			case 'm':
+				return readMemory(packet.substring(1));
+			case 'M':
+				simulation.clearHistory();
+				return writeMemory(packet.substring(1));
+			case 'c':
+				return resume(false);
+			case 's':
+				return resume(true);
+			case 'b':
+				return reverse(packet);
+			case 'Z':
+			case 'z':
+				return point(packet.charAt(0) == 'Z', packet.substring(1).split(","));
+			case 'q':
+				return query(packet);
+			case 'H':
+			case 'T':
+				return "OK";
+			case 'D':
+				send("OK");
+				return null;
+			case 'k':
+				return null;
+			default:
+				return "";
+			}
+		}
+		catch (RuntimeException e) {
+			return "E01";
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		query
+	 * Description: Returns the reply of a general query (q...)
+	 * Return:		String
+	 *****************************************************************************************/
+	private String query(String packet) {
+		if(packet.startsWith("qSupported"))
+			return "PacketSize=1000;qXfer:features:read+;qXfer:memory-map:read+"
+					+ (simulation.isReversible() ? ";ReverseStep+;ReverseContinue+" : "");
+		if(packet.startsWith("qXfer:features:read:target.xml:"))
+			return xfer(TARGET_XML, packet.substring("qXfer:features:read:target.xml:".length()));
+		if(packet.startsWith("qXfer:memory-map:read::"))
+			return xfer(memoryMap, packet.substring("qXfer:memory-map:read::".length()));
+		switch (packet) {
+		case "qAttached":
+			return "1";
+		case "qC":
+			return "QC1";
+		case "qfThreadInfo":
+			return "m1";
+		case "qsThreadInfo":
+			return "l";
+		case "qSymbol::":
+			return "OK";
+		default:
+			return "";
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		xfer
+	 * Description: Returns the part offset,length of the document of a qXfer read, with m
+	 * 				if there is more or l if it is the last one
+	 * Return:		String
+	 *****************************************************************************************/
+	private static String xfer(String document, String range) {
+		String[] fields = range.split(",");
+		int offset = Integer.parseInt(fields[0], 16);
+		int length = Integer.parseInt(fields[1], 16);
+		if(offset >= document.length())
+			return "l";
+		int end = Math.min(document.length(), offset + length);
+		return (end == document.length() ? "l" : "m") + document.substring(offset, end);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		memoryMap
+	 * Description: Returns the memory map of gdb: the data and stack memories in all the 
+	 * 				addresses but the .text of contMemory bytes at TEXT_BASE, read only
+	 * Return:		String
+	 *****************************************************************************************/
+	private static String memoryMap(int contMemory) {
+		long end = TEXT_BASE + (long) contMemory;
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\"?><!DOCTYPE memory-map PUBLIC ");
+		sb.append("\"+//IDN gnu.org//DTD GDB Memory Map V1.0//EN\" ");
+		sb.append("\"http://sourceware.org/gdb/gdb-memory-map.dtd\"><memory-map>");
+		sb.append(String.format("<memory type=\"ram\" start=\"0x0\" length=\"0x%x\"/>", TEXT_BASE));
+		if(contMemory > 0)
+			sb.append(String.format("<memory type=\"rom\" start=\"0x%x\" length=\"0x%x\"/>", TEXT_BASE,
+					contMemory));
+		sb.append(String.format("<memory type=\"ram\" start=\"0x%x\" length=\"0x%x\"/>", end, (1L << 32) - end));
+		sb.append("</memory-map>");
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		resume
+	 * Description: Runs one step, or until a breakpoint, a watchpoint, a Ctrl-C or the end
+	 * 				of the program, and returns the stop reply. The breakpoint at the PC
+	 * 				where it starts is not hit, so a continue goes on after a stop.
+	 * Return:		String
+	 *****************************************************************************************/
+	private String resume(boolean single) throws IOException {
+		if(ended)
+			return exitReply();
+		int next = nextBreakpoint();
+		for(long count = 1; ; count++) {
+			int pc = simulation.reg[15];
+			simulation.countAccesses = 0;
+			if(!simulation.step()) {
+				if(simulation.isFailed() && simulation.isReversible())
+					return "S0b";
+				ended = true;
+				return exitReply();
+			}
+			if(!watchpoints.isEmpty() && simulation.countAccesses > 0) {
+				String reply = watch();
+				if(reply != null)
+					return reply;
+			}
+			if(single)
+				return "S05";
+			if(simulation.reg[15] != pc + 2)
+				next = nextBreakpoint();
+			if(simulation.reg[15] == next)
+				return "S05";
+			if(count % POLL == 0 && interrupted())
+				return "S02";
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		reverse
+	 * Description: Runs one step backwards (bs) or until a breakpoint (bc) and returns the
+	 * 				stop reply, replaylog:begin if the start of the history was reached
+	 * Return:		String
+	 *****************************************************************************************/
+	private String reverse(String packet) {
+		if(!simulation.isReversible() || packet.length() != 2)
+			return "";
+		boolean stopped = packet.charAt(1) == 's' ? simulation.reverseStep() : simulation.reverseContinue(breakpoints);
+		ended = false;
+		return stopped ? "S05" : "T05replaylog:begin;";
+	}
+
+	/*****************************************************************************************
+	 * Name: 		nextBreakpoint
+	 * Description: Returns the address of the first breakpoint from the PC, or -1
+	 * Return:		int
+	 *****************************************************************************************/
+	private int nextBreakpoint() {
+		int index = breakpoints.nextSetBit(simulation.reg[15] >>> 1);
+		return index >= 0 ? index << 1 : -1;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		watch
+	 * Description: Returns the stop reply of the first watchpoint hit by the data accesses
+	 * 				of the last step, see OperationsCPU.access(), or null if there is none
+	 * Return:		String
+	 *****************************************************************************************/
+	private String watch() {
+		for(int i = 0; i < simulation.countAccesses; i += 2) {
+			int address = simulation.accesses[i];
+			boolean write = simulation.accesses[i + 1] == 1;
+			for (int[] watchpoint : watchpoints) {
+				if(Integer.compareUnsigned(address - watchpoint[1], watchpoint[2]) >= 0)
+					continue;
+				if(watchpoint[0] == 2 && write)
+					return String.format("T05watch:%08x;", address);
+				if(watchpoint[0] == 3 && !write)
+					return String.format("T05rwatch:%08x;", address);
+				if(watchpoint[0] == 4)
+					return String.format("T05awatch:%08x;", address);
+			}
+		}
+		return null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		interrupted
+	 * Description: Returns true if gdb sent a Ctrl-C (0x03)
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean interrupted() throws IOException {
+		boolean interrupt = false;
+		while(in.available() > 0)
+			if(in.read() == 0x03)
+				interrupt = true;
+		return interrupt;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		point
+	 * Description: Inserts or removes a breakpoint (type 0 or 1) or a watchpoint (type 2,
+	 * 				3 or 4) of fields {type, address, length}
+	 * Return:		String
+	 *****************************************************************************************/
+	private String point(boolean insert, String[] fields) {
+		int type = Integer.parseInt(fields[0]);
+		int address = Integer.parseUnsignedInt(fields[1], 16);
+		int length = Integer.parseInt(fields[2], 16);
+		if(type == 0 || type == 1) {
+			breakpoints.set(address >>> 1, insert);
+			return "OK";
+		}
+		if(type < 2 || type > 4)
+			return "";
+		watchpoints.removeIf(w -> w[0] == type && w[1] == address && w[2] == length);
+		if(insert)
+			watchpoints.add(new int[] {type, address, length});
+		return "OK";
+	}
+
+	/*****************************************************************************************
+	 * Name: 		readMemory
+	 * Description: Returns the bytes of the memory of addr,length in hexadecimal
+	 * Return:		String
+	 *****************************************************************************************/
+	private String readMemory(String range) {
+		String[] fields = range.split(",");
+		int address = Integer.parseUnsignedInt(fields[0], 16);
+		int length = Math.min(Integer.parseInt(fields[1], 16), MAX_MEMORY);
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++)
+			sb.append(String.format("%02x", readByte(address + i)));
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		writeMemory
+	 * Description: Writes the bytes of addr,length:bytes in hexadecimal to the memory
+	 * Return:		String
+	 *****************************************************************************************/
+	private String writeMemory(String packet) {
+		String[] fields = packet.split("[,:]");
+		int address = Integer.parseUnsignedInt(fields[0], 16);
+		int length = Integer.parseInt(fields[1], 16);
+		for(int i = 0; i < length; i++)
+			writeByte(address + i, Integer.parseInt(fields[2].substring(2 * i, 2 * i + 2), 16));
+		return "OK";
+	}
+
+	/*****************************************************************************************
+	 * Name: 		readByte
+	 * Description: Returns the byte at the address. The .text is read at TEXT_BASE from the
+	 * 				opcodes of the program memory. The data and stack memories keep a value
+	 * 				by address: a byte is the value stored at its address, if it is not
+	 * 				aligned and was stored, else the byte of the word stored at the aligned
+	 * 				address.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int readByte(int address) {
+		if(Integer.compareUnsigned(address - TEXT_BASE, simulation.contMemory) < 0) {
+			Integer opcode = simulation.programMemory.get((address - TEXT_BASE) & ~0x1);
+			return opcode != null ? (opcode >>> ((address & 0x1) * 8)) & 0xFF : 0;
+		}
+		if((address & 0x3) != 0) {
+			Integer data = value(address);
+			if(data != null)
+				return data & 0xFF;
+		}
+		Integer data = value(address & ~0x3);
+		return data != null ? (data >>> ((address & 0x3) * 8)) & 0xFF : 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		writeByte
+	 * Description: Writes the byte at the address, in the same places read by readByte()
+	 * Return:		void
+	 *****************************************************************************************/
+	private void writeByte(int address, int data) {
+		PagedMemory memory = simulation.programMemory;
+		int aligned = (address - TEXT_BASE) & ~0x1, shift = (address & 0x1) * 8;
+		if(Integer.compareUnsigned(address - TEXT_BASE, simulation.contMemory) >= 0) {
+			aligned = address & ~0x3;
+			shift = (address & 0x3) * 8;
+			memory = simulation.stackMemory.containsKey(aligned) ? simulation.stackMemory : simulation.dataMemory;
+			if(!memory.containsKey(aligned) || (shift != 0 && memory.containsKey(address))) {
+				memory.put(address, data);
+				return;
+			}
+		}
+		Integer old = memory.get(aligned);
+		memory.put(aligned, ((old != null ? old : 0) & ~(0xFF << shift)) | (data << shift));
+	}
+
+	/*****************************************************************************************
+	 * Name: 		value
+	 * Description: Returns the value stored at the address in the stack or the data memory
+	 * Return:		Integer
+	 *****************************************************************************************/
+	private Integer value(int address) {
+		Integer data = simulation.stackMemory.get(address);
+		return data != null ? data : simulation.dataMemory.get(address);
+	}
+
+	private int getRegister(int number) {
+		return number == CPSR ? simulation.regCPSR : simulation.reg[number];
+	}
+
+	private void setRegister(int number, int value) {
+		if(number == CPSR)
+			simulation.regCPSR = value;
+		else
+			simulation.reg[number] = value;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		exitReply
+	 * Description: Returns the reply of the end of the program, with its exit code
+	 * Return:		String
+	 *****************************************************************************************/
+	private String exitReply() {
+		return String.format("W%02x", simulation.getExitCode() & 0xFF);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		hex
+	 * Description: Returns the word in hexadecimal, in the order of the bytes of the target
+	 * 				(little-endian)
+	 * Return:		String
+	 *****************************************************************************************/
+	private static String hex(int value) {
+		return String.format("%02x%02x%02x%02x", value & 0xFF, (value >>> 8) & 0xFF, (value >>> 16) & 0xFF,
+				(value >>> 24) & 0xFF);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		register
+	 * Description: Returns the value of a register of G or P, 8 digits in hexadecimal in the
+	 * 				order of the bytes of the target (little-endian)
+	 * Return:		int
+	 *****************************************************************************************/
+	private static int register(String hex) {
+		return Integer.reverseBytes(Integer.parseUnsignedInt(hex, 16));
+	}
+
+}
@@ -0,0 +1,564 @@
+/*************************************************************************************
+ * @filename: 		LaneExecutor.java
+ * @description:	Class that runs one program over many input vectors (lanes), each
+ * 					lane with its own initial registers and data memory. While all the
+ * 					lanes are at the same PC and the instruction is a data processing
+ * 					instruction of the formats 1 to 4 (shifts by immediate, ADD/SUB,
+ * 					MOV/CMP/ADD/SUB with immed8 and the ALU operations AND ... MVN),
+ * 					or a B<cond> with the same condition on all the lanes, it is
+ * 					executed on all the lanes at once, with the registers kept
+ * 					by register and then by lane (reg[r][lane]), so each operation is
+ * 					a loop over arrays. Any other instruction, and the lanes that went
+ * 					to another PC, are executed by the simulation of each lane.
+ *
+ * 					The lanes are executed with the same semantics of the simulation,
+ * 					the flags by the same functions of OperationsCPU. The flight
+ * 					recorder is not used.
+ *
+ * 					Input vectors, one lane per line ('#' starts a comment):
+ * 					r0=5 r1=0x10 [0x1000]=7		registers and words of the data memory
+ * @version:		1.0
+ * @created:  		10/18/2026, 19:36:52
+ * @modified: 		10/18/2026, 19:36:52
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LaneExecutor {
+	private int maxSteps;
+	private TimingModel timing;
+	private ThumbInstructions[] lanes;
+	private int[][] reg;
+	private int[] cpsr;
+	private boolean[] attPc;
+	private boolean[] bl;
+	private int[] steps;
+	private long[] cycles;
+	private boolean[] done;
+	private int active;
+	private long vectorSteps = 0;
+	private long scalarSteps = 0;
+
+	/*****************************************************************************************
+	 * Name: 		LaneExecutor
+	 * Description: Constructor method. Loads the program of the file with a lane for each
+	 * 				line of the input vectors file. Only the options -timing and -steps are
+	 * 				used.
+	 *****************************************************************************************/
+	public LaneExecutor(String strFile, OptionsCPU options, String vectorsFile) throws IOException,
+			IllegalArgumentException {
+		List<String> vectors = new ArrayList<String>();
+		for (String line : Files.readAllLines(Paths.get(vectorsFile))) {
+			int comment = line.indexOf('#');
+			if(comment >= 0)
+				line = line.substring(0, comment);
+			if(!line.isBlank())
+				vectors.add(line.trim());
+		}
+		if(vectors.isEmpty())
+			throw new IllegalArgumentException("No input vectors in " + vectorsFile);
+		OptionsCPU laneOptions = new OptionsCPU();
+		laneOptions.setTiming(options.getTiming());
+		laneOptions.setMaxSteps(options.getMaxSteps());
+		laneOptions.setFlight(0);
+		maxSteps = options.getMaxSteps();
+		timing = options.getTiming() != null ? TimingModel.forName(options.getTiming()) : null;
+		ThumbInstructions base = ThumbInstructions.load(strFile, laneOptions);
+		int n = vectors.size();
+		lanes = new ThumbInstructions[n];
+		reg = new int[16][n];
+		cpsr = new int[n];
+		attPc = new boolean[n];
+		bl = new boolean[n];
+		steps = new int[n];
+		cycles = new long[n];
+		done = new boolean[n];
+		active = n;
+		for(int i = 0; i < n; i++) {
+			lanes[i] = base.fork();
+			for (String assignment : vectors.get(i).split("\\s+"))
+				assign(lanes[i], assignment);
+			gather(i);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		assign
+	 * Description: Applies an assignment rN=value or [address]=value to the lane
+	 * Return:		void
+	 *****************************************************************************************/
+	private static void assign(ThumbInstructions lane, String assignment) throws IllegalArgumentException {
+		int equal = assignment.indexOf('=');
+		if(equal < 0)
+			throw new IllegalArgumentException("Invalid assignment " + assignment);
+		String target = assignment.substring(0, equal).toLowerCase();
+		try {
+			int value = word(assignment.substring(equal + 1));
+			if(target.matches("r\\d+") && Integer.parseInt(target.substring(1)) < 16)
+				lane.reg[Integer.parseInt(target.substring(1))] = value;
+			else if(target.matches("\\[.+\\]"))
+				lane.dataMemory.put(word(target.substring(1, target.length() - 1)), value);
+			else
+				throw new IllegalArgumentException("Invalid assignment " + assignment);
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid assignment " + assignment);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		word
+	 * Description: Decodes a value of 32 bits, signed or unsigned (0x80000000-0xFFFFFFFF)
+	 * Return:		int
+	 *****************************************************************************************/
+	private static int word(String str) throws NumberFormatException {
+		long value = Long.decode(str);
+		if(value < Integer.MIN_VALUE || value > 0xFFFFFFFFL)
+			throw new NumberFormatException("Out of range: " + str);
+		return (int) value;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Runs all the lanes until each one fetches an instruction outside of the
+	 * 				program memory or reaches the operation limit
+	 * Return:		void
+	 *****************************************************************************************/
+	public void run() {
+		for(int i = 0; i < lanes.length; i++)
+			if(!done[i] && steps[i] >= maxSteps)
+				finish(i);
+		while(active > 0) {
+			int first = converged();
+			Integer opcode = first >= 0 ? lanes[first].programMemory.get(reg[15][first]) : null;
+			if(opcode == null || !branch(opcode, first) && !vector(opcode, first))
+				scalar();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		next
+	 * Description: Updates the PC register of the lanes after an instruction without a
+	 * 				branch, as DecodeInstructions.execute(), and counts it
+	 * Return:		void
+	 *****************************************************************************************/
+	private void next(int opcode, int first) {
+		boolean taken = !attPc[first];
+		if(!taken) {
+			int[] pc = reg[15];
+			for(int i = 0; i < pc.length; i++)
+				pc[i] += 2;
+		}
+		count(opcode, taken);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		count
+	 * Description: Counts the instruction executed on all the lanes not done. taken is true
+	 * 				if the PC register did not move to the next instruction.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void count(int opcode, boolean taken) {
+		int cost = timing != null ? timing.cycles(opcode, taken) : 0;
+		Arrays.fill(attPc, true);
+		for(int i = 0; i < steps.length; i++) {
+			steps[i]++;
+			cycles[i] += cost;
+		}
+		for(int i = 0; i < steps.length; i++)
+			if(steps[i] >= maxSteps && !done[i])
+				finish(i);
+		vectorSteps++;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		branch
+	 * Description: Executes a B<cond> on all the lanes if the condition is the same on all 
+	 * 				of them, see OperationsInstructions.B_cond_offset8(). Returns false, 
+	 * 				without executing it, otherwise.
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean branch(int opcode, int first) {
+		int cond = (opcode >>> 8) & 0xF;
+		if((opcode >>> 12) != 0xD || cond >= 0xE)
+			return false;
+		boolean taken = OperationsCPU.checkCondition(cpsr[first], cond);
+		for(int i = first + 1; i < lanes.length; i++)
+			if(!done[i] && OperationsCPU.checkCondition(cpsr[i], cond) != taken)
+				return false;
+		if(!taken) {
+			next(opcode, first);
+			return true;
+		}
+		int offset = (byte) opcode;
+		int pc = reg[15][first], address = pc + 4 + offset * 2;
+		Arrays.fill(reg[15], address);
+		count(opcode, address != pc + 2);
+		return true;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		converged
+	 * Description: Returns the first lane not done if all the lanes not done are at the same
+	 * 				PC and can execute an instruction together, or -1
+	 * Return:		int
+	 *****************************************************************************************/
+	private int converged() {
+		int first = -1;
+		for(int i = 0; i < lanes.length; i++) {
+			if(done[i])
+				continue;
+			if(bl[i])
+				return -1;
+			if(first < 0)
+				first = i;
+			else if(reg[15][i] != reg[15][first] || attPc[i] != attPc[first])
+				return -1;
+		}
+		return first;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		scalar
+	 * Description: Executes an instruction on each lane not done by its simulation
+	 * Return:		void
+	 *****************************************************************************************/
+	private void scalar() {
+		for(int i = 0; i < lanes.length; i++) {
+			if(done[i])
+				continue;
+			scatter(i);
+			boolean running = lanes[i].step();
+			gather(i);
+			scalarSteps++;
+			if(!running) {
+				done[i] = true;
+				active--;
+			}
+			else if(steps[i] >= maxSteps)
+				finish(i);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		finish
+	 * Description: Ends the lane at the operation limit
+	 * Return:		void
+	 *****************************************************************************************/
+	private void finish(int i) {
+		scatter(i);
+		lanes[i].run();
+		done[i] = true;
+		active--;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		scatter
+	 * Description: Copies the registers and the counters of the lane to its simulation
+	 * Return:		void
+	 *****************************************************************************************/
+	private void scatter(int i) {
+		for(int r = 0; r < 16; r++)
+			lanes[i].reg[r] = reg[r][i];
+		lanes[i].regCPSR = cpsr[i];
+		lanes[i].attPc = attPc[i];
+		lanes[i].bl = bl[i];
+		lanes[i].setCounters(steps[i], cycles[i]);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		gather
+	 * Description: Copies the registers and the counters of the simulation of the lane to 
+	 * 				the arrays of the lanes
+	 * Return:		void
+	 *****************************************************************************************/
+	private void gather(int i) {
+		for(int r = 0; r < 16; r++)
+			reg[r][i] = lanes[i].reg[r];
+		cpsr[i] = lanes[i].regCPSR;
+		attPc[i] = lanes[i].attPc;
+		bl[i] = lanes[i].bl;
+		steps[i] = lanes[i].getSteps();
+		cycles[i] = lanes[i].getCycles();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		vector
+	 * Description: Executes the instruction on all the lanes if it is a data processing
+	 * 				instruction of the formats 1 to 4, see DecodeInstructions and
+	 * 				OperationsInstructions. Returns false, without executing it, otherwise.
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean vector(int opcode, int first) {
+		if(!alu(opcode))
+			return false;
+		next(opcode, first);
+		return true;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		alu
+	 * Description: Executes the data processing instruction on the registers of all the 
+	 * 				lanes. Returns false, without executing it, if it is not one of the 
+	 * 				formats 1 to 4. The lanes done are also computed, their registers are 
+	 * 				not used anymore.
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean alu(int opcode) {
+		int n = cpsr.length;
+		int[] c = cpsr;
+		int op = (opcode >>> 11) & 0x1F;
+		/******************************************************
+		 * Formats 1 and 2: Ld, Lm/Ln, #immed5 | Lm | #immed3
+		 ******************************************************/
+		if(op <= 3) {
+			int[] d = reg[opcode & 0x7], m = reg[(opcode >>> 3) & 0x7];
+			int k = (opcode >>> 6) & 0x1F;
+			switch (op) {
+			case 0:		// LSL Ld, Lm, #immed5
+				for(int i = 0; i < n; i++) {
+					d[i] = m[i] << k;
+					c[i] = OperationsCPU.flagsC_shift(c[i], m[i], k, OperationsCPU.shiftType.LSL);
+					c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+				}
+				return true;
+			case 1:		// LSR Ld, Lm, #immed5
+				for(int i = 0; i < n; i++) {
+					d[i] = m[i] >>> k;
+					c[i] = OperationsCPU.flagsC_shift(c[i], m[i], k, OperationsCPU.shiftType.LSR);
+					c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+				}
+				return true;
+			case 2:		// ASR Ld, Lm, #immed5
+				for(int i = 0; i < n; i++) {
+					d[i] = m[i] >> k;
+					c[i] = OperationsCPU.flagsC_shift(c[i], m[i], k, OperationsCPU.shiftType.ASR);
+					c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+				}
+				return true;
+			default:	// ADD | SUB Ld, Ln, Lm | #immed3
+				int[] b = reg[(opcode >>> 6) & 0x7];
+				int immed3 = (opcode >>> 6) & 0x7;
+				switch ((opcode >>> 9) & 0x3) {
+				case 0:
+					for(int i = 0; i < n; i++) {
+						d[i] = m[i] + b[i];
+						c[i] = OperationsCPU.flagsADD_signed(c[i], m[i], b[i]);
+					}
+					break;
+				case 1:
+					for(int i = 0; i < n; i++) {
+						d[i] = m[i] - b[i];
+						c[i] = OperationsCPU.flagsSUB_signed(c[i], m[i], b[i]);
+					}
+					break;
+				case 2:
+					for(int i = 0; i < n; i++) {
+						d[i] = m[i] + immed3;
+						c[i] = OperationsCPU.flagsADD_signed(c[i], m[i], immed3);
+					}
+					break;
+				default:	// as SUB_Ld_Ln_immed3, that adds
+					for(int i = 0; i < n; i++) {
+						d[i] = m[i] + immed3;
+						c[i] = OperationsCPU.flagsSUB_signed(c[i], m[i], immed3);
+					}
+				}
+				return true;
+			}
+		}
+		/******************************************************
+		 * Format 3: MOV | CMP | ADD | SUB Ld, #immed8
+		 ******************************************************/
+		if(op <= 7) {
+			int[] d = reg[(opcode >>> 8) & 0x7];
+			int immed8 = opcode & 0xFF;
+			switch (op) {
+			case 4:
+				for(int i = 0; i < n; i++) {
+					d[i] = immed8;
+					c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+				}
+				break;
+			case 5:
+				for(int i = 0; i < n; i++)
+					c[i] = OperationsCPU.flagsSUB_signed(c[i], d[i], immed8);
+				break;
+			case 6:
+				for(int i = 0; i < n; i++) {
+					d[i] = d[i] + immed8;
+					c[i] = OperationsCPU.flagsADD_signed(c[i], d[i], immed8);
+				}
+				break;
+			default:
+				for(int i = 0; i < n; i++) {
+					d[i] = d[i] - immed8;
+					c[i] = OperationsCPU.flagsSUB_signed(c[i], d[i], immed8);
+				}
+			}
+			return true;
+		}
+		/******************************************************
+		 * Format 4: <ALU operation> Ld, Lm
+		 ******************************************************/
+		if((opcode >>> 10) != 0x10)
+			return false;
+		int[] d = reg[opcode & 0x7], m = reg[(opcode >>> 3) & 0x7];
+		switch ((opcode >>> 6) & 0xF) {
+		case 0:		// AND
+			for(int i = 0; i < n; i++) {
+				d[i] = d[i] & m[i];
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 1:		// EOR
+			for(int i = 0; i < n; i++) {
+				d[i] = d[i] ^ m[i];
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 2:		// LSL Ld, Ls
+			for(int i = 0; i < n; i++) {
+				int k = m[i] & 0xFF;
+				if(k > 31)
+					k &= 31;
+				d[i] = d[i] << k;
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 3:		// LSR Ld, Ls
+			for(int i = 0; i < n; i++) {
+				int k = m[i] & 0xFF;
+				if(k > 31)
+					k &= 31;
+				d[i] = d[i] >>> k;
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 4:		// ASR Ld, Ls
+			for(int i = 0; i < n; i++) {
+				int k = m[i] & 0xFF;
+				if(k >= 0 && k <= 31)
+					d[i] = d[i] >> k;
+				else
+					d[i] = -(m[i] >>> 31);
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 5:		// ADC
+			for(int i = 0; i < n; i++) {
+				int carry = (c[i] >>> 29) & 0x1;
+				c[i] = OperationsCPU.flagsADD_signed(c[i], d[i], m[i] + carry);
+				d[i] = d[i] + m[i] + carry;
+			}
+			break;
+		case 6:		// SBC
+			for(int i = 0; i < n; i++) {
+				int carry = (c[i] >>> 29) & 0x1;
+				c[i] = OperationsCPU.flagsSUB_signed(c[i], d[i], m[i] - (~carry));
+				d[i] = d[i] - m[i] - (~carry);
+			}
+			break;
+		case 7:		// ROR Ld, Ls
+			for(int i = 0; i < n; i++) {
+				int k = m[i] & 0xFF;
+				if(k >= 32)
+					k &= 31;
+				d[i] = (d[i] >>> k | (d[i] << (32 - k)));
+				c[i] = OperationsCPU.flagsC_shift(c[i], m[i], k, OperationsCPU.shiftType.ROR);
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 8:		// TST
+			for(int i = 0; i < n; i++)
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i] & m[i]);
+			break;
+		case 9:		// NEG
+			for(int i = 0; i < n; i++) {
+				d[i] = -m[i];
+				c[i] = OperationsCPU.flagsSUB_signed(c[i], 0, m[i]);
+			}
+			break;
+		case 10:	// CMP
+			for(int i = 0; i < n; i++)
+				c[i] = OperationsCPU.flagsSUB_signed(c[i], d[i], m[i]);
+			break;
+		case 11:	// CMN
+			for(int i = 0; i < n; i++)
+				c[i] = OperationsCPU.flagsADD_signed(c[i], d[i], m[i]);
+			break;
+		case 12:	// ORR
+			for(int i = 0; i < n; i++) {
+				d[i] = d[i] | m[i];
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 13:	// MUL
+			for(int i = 0; i < n; i++) {
+				d[i] = d[i] * m[i];
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		case 14:	// BIC
+			for(int i = 0; i < n; i++) {
+				d[i] = d[i] & (~m[i]);
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+			break;
+		default:	// MVN
+			for(int i = 0; i < n; i++) {
+				d[i] = ~m[i];
+				c[i] = OperationsCPU.flagsN_Z(c[i], d[i]);
+			}
+		}
+		return true;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		showLanes
+	 * Description: Shows the steps, the cycles, the end and the registers R0 to R7 of each 
+	 * 				lane
+	 * Return:		String
+	 *****************************************************************************************/
+	public String showLanes() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                               Lanes                               |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		for(int i = 0; i < lanes.length; i++) {
+			ThumbInstructions lane = lanes[i];
+			sb.append(String.format("Lane %d: %d steps, ", i, lane.getSteps()));
+			if(timing != null)
+				sb.append(String.format("%d cycles, ", lane.getCycles()));
+			sb.append(lane.getSteps() >= maxSteps ? "operation limit\n" : "fetched outside of the program\n");
+			for(int r = 0; r < 8; r++)
+				sb.append(String.format("  R%d = 0x%08x", r, lane.reg[r]) + (r % 4 == 3 ? "\n" : ""));
+		}
+		sb.append(String.format("Lanes: %d, steps on all the lanes: %d, steps by lane: %d", lanes.length,
+				vectorSteps, scalarSteps));
+		return sb.toString();
+	}
+
+	public ThumbInstructions getLane(int i) {
+		return lanes[i];
+	}
+
+	public long getVectorSteps() {
+		return vectorSteps;
+	}
+
+	public long getScalarSteps() {
+		return scalarSteps;
+	}
+
+}
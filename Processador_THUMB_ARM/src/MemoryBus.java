@@ -0,0 +1,186 @@
+/*************************************************************************************
+ * @filename: 		MemoryBus.java
+ * @description:	Map of the addresses of the data accesses to regions: RAM (the
+ * 					data memory) and the devices (MMIO). The regions are kept in a small table sorted
+ * 					by address that covers all the addresses, the ones not mapped are
+ * 					RAM. loadMemory() and storeMemory() keep each one the last region
+ * 					hit, so the accesses to the same region do not search the table,
+ * 					and the RAM is not a device: its accesses stay on the path of the
+ * 					data memory, without virtual calls.
+ *
+ * 					Map:
+ * 					0x40004000 UART		see UartMMIO
+ * 					0xE0001000 DWT		see CycleCounterMMIO
+ * @version:		1.0
+ * @created:  		10/18/2026, 22:03:17
+ * @modified: 		10/18/2026, 22:03:17
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+public class MemoryBus {
+	public static final int UART_BASE = 0x40004000;
+	public static final int DWT_BASE = 0xE0001000;
+
+	/************************************************************************
+	 * Region i is [starts[i], ends[i]), as unsigned addresses. devices[i]
+	 * is null for the RAM.
+	 ************************************************************************/
+	private long[] starts = {0};
+	private long[] ends = {1L << 32};
+	private DeviceMMIO[] devices = {null};
+	private int lastLoad = 0;				// last region hit by loadMemory()
+	private int lastStore = 0;				// last region hit by storeMemory()
+
+	/*****************************************************************************************
+	 * Name: 		forOptions
+	 * Description: Returns the bus with the devices of the options, or null if there is 
+	 * 				none. The UART writes the sink of the options, see getUartSink(). clock
+	 * 				returns the count of the cycle counter.
+	 * Return:		MemoryBus
+	 *****************************************************************************************/
+	public static MemoryBus forOptions(OptionsCPU options, LongSupplier clock) throws IllegalArgumentException {
+		if(options.getUart() == null && !options.isCycleCounter())
+			return null;
+		MemoryBus bus = new MemoryBus();
+		if(options.getUart() != null) {
+			try {
+				bus.map(UART_BASE, UartMMIO.SIZE, new UartMMIO(options.getUartSink()));
+			}
+			catch (FileNotFoundException e) {
+				throw new IllegalArgumentException("The UART can not write " + options.getUart());
+			}
+		}
+		if(options.isCycleCounter())
+			bus.map(DWT_BASE, CycleCounterMMIO.SIZE, new CycleCounterMMIO(clock));
+		return bus;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		map
+	 * Description: Maps the device to size bytes from start, that must be in the RAM
+	 * Return:		void
+	 *****************************************************************************************/
+	public void map(int start, int size, DeviceMMIO device) throws IllegalArgumentException {
+		long first = start & 0xFFFFFFFFL, last = first + size;
+		int i = find(start);
+		if(devices[i] != null || last > ends[i] || size < 1)
+			throw new IllegalArgumentException(String.format("Invalid region of the %s at 0x%08x",
+					device.getName(), start));
+		int n = starts.length;
+		long[] newStarts = new long[n + 2], newEnds = new long[n + 2];
+		DeviceMMIO[] newDevices = new DeviceMMIO[n + 2];
+		int count = 0;
+		for(int j = 0; j < n; j++) {
+			if(j != i) {
+				newStarts[count] = starts[j];
+				newEnds[count] = ends[j];
+				newDevices[count++] = devices[j];
+				continue;
+			}
+			if(starts[j] < first) {
+				newStarts[count] = starts[j];
+				newEnds[count++] = first;
+			}
+			newStarts[count] = first;
+			newEnds[count] = last;
+			newDevices[count++] = device;
+			if(last < ends[j]) {
+				newStarts[count] = last;
+				newEnds[count++] = ends[j];
+			}
+		}
+		starts = Arrays.copyOf(newStarts, count);
+		ends = Arrays.copyOf(newEnds, count);
+		devices = Arrays.copyOf(newDevices, count);
+		lastLoad = lastStore = 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		find
+	 * Description: Returns the region of the address
+	 * Return:		int
+	 *****************************************************************************************/
+	private int find(int address) {
+		int i = Arrays.binarySearch(starts, address & 0xFFFFFFFFL);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		load
+	 * Description: Returns the device region of the address of a load, or -1 if it is RAM
+	 * Return:		int
+	 *****************************************************************************************/
+	public int load(int address) {
+		long unsigned = address & 0xFFFFFFFFL;
+		if(unsigned < starts[lastLoad] || unsigned >= ends[lastLoad])
+			lastLoad = find(address);
+		return devices[lastLoad] != null ? lastLoad : -1;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		store
+	 * Description: Returns the device region of the address of a store, or -1 if it is RAM
+	 * Return:		int
+	 *****************************************************************************************/
+	public int store(int address) {
+		long unsigned = address & 0xFFFFFFFFL;
+		if(unsigned < starts[lastStore] || unsigned >= ends[lastStore])
+			lastStore = find(address);
+		return devices[lastStore] != null ? lastStore : -1;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Reads the register of the device of the region at the address. A fault
+	 * 				of the device is thrown as an IllegalStateException, that ends the run.
+	 * Return:		int
+	 *****************************************************************************************/
+	public int read(int region, int address) throws IllegalStateException {
+		try {
+			return devices[region].read((int) ((address & 0xFFFFFFFFL) - starts[region]));
+		}
+		catch (RuntimeException e) {
+			throw fault(region, address, e);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the register of the device of the region at the address, see 
+	 * 				read()
+	 * Return:		void
+	 *****************************************************************************************/
+	public void write(int region, int address, int value) throws IllegalStateException {
+		try {
+			devices[region].write((int) ((address & 0xFFFFFFFFL) - starts[region]), value);
+		}
+		catch (RuntimeException e) {
+			throw fault(region, address, e);
+		}
+	}
+
+	private IllegalStateException fault(int region, int address, RuntimeException e) {
+		return new IllegalStateException(String.format("Fault of the %s at 0x%08x: %s", 
+				devices[region].getName(), address, e.getMessage()), e);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flush
+	 * Description: Writes the buffered output of the devices
+	 * Return:		void
+	 *****************************************************************************************/
+	public void flush() {
+		for (DeviceMMIO device : devices)
+			if(device != null)
+				device.flush();
+	}
+
+}
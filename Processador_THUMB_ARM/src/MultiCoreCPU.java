@@ -0,0 +1,108 @@
+/*************************************************************************************
+ * @filename: 		MultiCoreCPU.java
+ * @description:	Class that simulates N THUMB cores running the same program, each
+ * 					core on its own thread, with its own registers, CPSR and stack
+ * 					memory. The data memory is shared by all the cores (SharedMemory),
+ * 					so the loads and stores of a core are seen by the others, in the
+ * 					order of a sequentially consistent memory. At the start the
+ * 					register R0 of each core holds its number (0 to N-1), so the
+ * 					program can choose the work of each core.
+ *
+ * 					The cores run without a common clock, so the interleaving of their
+ * 					accesses to the data memory depends on the threads of the host.
+ * @version:		1.0
+ * @created:  		10/18/2026, 20:44:15
+ * @modified: 		10/18/2026, 20:44:15
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+public class MultiCoreCPU {
+	private int maxSteps;
+	private boolean timing;
+	private ThumbInstructions[] cores;
+	private SharedMemory memory = new SharedMemory();
+	private long time = 0;
+
+	/*****************************************************************************************
+	 * Name: 		MultiCoreCPU
+	 * Description: Constructor method. Loads the program of the file with n cores. Only the
+	 * 				options -timing, -flight and -steps are used.
+	 *****************************************************************************************/
+	public MultiCoreCPU(String strFile, OptionsCPU options, int n) throws IllegalArgumentException {
+		if(n < 1)
+			throw new IllegalArgumentException("Invalid number of cores: " + n);
+		OptionsCPU coreOptions = new OptionsCPU();
+		coreOptions.setTiming(options.getTiming());
+		coreOptions.setFlight(options.getFlight());
+		coreOptions.setMaxSteps(options.getMaxSteps());
+		maxSteps = options.getMaxSteps();
+		timing = options.getTiming() != null;
+		ThumbInstructions base = ThumbInstructions.load(strFile, coreOptions);
+		memory.putAll(base.dataMemory);
+		cores = new ThumbInstructions[n];
+		for(int i = 0; i < n; i++) {
+			cores[i] = base.fork();
+			cores[i].sharedMemory = memory;
+			cores[i].reg[0] = i;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Runs each core on its own thread until all of them fetch an instruction
+	 * 				outside of the program memory or reach the operation limit
+	 * Return:		void
+	 *****************************************************************************************/
+	public void run() throws InterruptedException {
+		Thread[] threads = new Thread[cores.length];
+		long start = System.nanoTime();
+		for(int i = 0; i < cores.length; i++) {
+			threads[i] = new Thread(cores[i]::run, "core-" + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		time = System.nanoTime() - start;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		showCores
+	 * Description: Shows the steps, the cycles, the end and the registers of each core, and
+	 * 				the shared data memory
+	 * Return:		String
+	 *****************************************************************************************/
+	public String showCores() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                               Cores                               |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		long steps = 0;
+		for(int i = 0; i < cores.length; i++) {
+			ThumbInstructions core = cores[i];
+			steps += core.getSteps();
+			sb.append(String.format("Core %d: %d steps, ", i, core.getSteps()));
+			if(timing)
+				sb.append(String.format("%d cycles, ", core.getCycles()));
+			sb.append(core.getSteps() >= maxSteps ? "operation limit\n" : "fetched outside of the program\n");
+			for(int r = 0; r < 16; r++)
+				sb.append(String.format("  R%-2d = 0x%08x", r, core.reg[r]) + (r % 4 == 3 ? "\n" : ""));
+			sb.append(String.format("  CPSR = 0x%08x\n", core.regCPSR));
+		}
+		sb.append(String.format("Cores: %d, steps: %d, time: %.2f ms\n", cores.length, steps, time / 1e6));
+		sb.append(cores[0].showDataMemory());
+		return sb.toString();
+	}
+
+	public ThumbInstructions getCore(int i) {
+		return cores[i];
+	}
+
+	public SharedMemory getMemory() {
+		return memory;
+	}
+
+}
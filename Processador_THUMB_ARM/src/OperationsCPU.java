@@ -11,19 +11,28 @@
  * @organization:	UFC - Quixada
  *************************************************************************************/
 
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
 
 public abstract class OperationsCPU {
-	protected static int[] reg = new int[16];
-	protected static int regCPSR;
-	protected static Map<Integer, Integer> programMemory = new TreeMap<Integer, Integer>();
-	protected static Map<Integer, Integer> dataMemory = new TreeMap<Integer, Integer>();
-	protected static Map<Integer, Integer> stackMemory = new TreeMap<Integer, Integer>();
-	protected static int contMemory = 0;
-	protected static boolean bl = false;
-	protected static boolean attPc = false;
-	protected static boolean modeCPU = false;
+	protected int[] reg = new int[16];
+	protected int regCPSR;
+	protected PagedMemory programMemory = new PagedMemory();
+	protected PagedMemory dataMemory = new PagedMemory();
+	protected SharedMemory sharedMemory = null;	// data memory of the cores of a multi-core run
+	protected PagedMemory stackMemory = new PagedMemory();
+	protected int contMemory = 0;
+	protected boolean bl = false;
+	protected boolean attPc = false;
+	protected boolean modeCPU = false;
+	protected CacheCPU cache = null;
+	protected MemoryBus bus = null;
+	protected SemihostingCPU semihosting = null;
+	protected UndoLogCPU undo = null;
+	protected long countStores = 0;				// stores to the data and stack memories
+	protected long countEffects = 0;			// semihosting calls and reads of the devices
+	protected int[] accesses = null;			// data accesses of the step if not null, see access()
+	protected int countAccesses = 0;
 
 	protected byte bits_15_12;
 	protected byte bits_11_8;
@@ -41,7 +50,7 @@ public abstract class OperationsCPU {
 	 * 				See table B.2 of the book ARM System Developer’s Guide.
 	 * Return:		String	
 	 *****************************************************************************************/
-	protected String decodeCond(int cond) {
+	protected static String decodeCond(int cond) {
 		switch (cond) {
 		case 0:
 			return "EQ";
@@ -78,13 +87,22 @@ public abstract class OperationsCPU {
 		}
 	}
 	
+	/*****************************************************************************************
+	 * Name: 		checkCondition
+	 * Description:	Checks the condition called on the cpsr, see checkCondition(cpsr, cond)
+	 * Return:		boolean	
+	 *****************************************************************************************/
+	protected boolean checkCondition(int cond) {
+		return checkCondition(regCPSR, cond);
+	}
+	
 	/*****************************************************************************************
 	 * Name: 		checkCondition
 	 * Description:	Checks the condition called and returns true if correct and false otherwise. 
 	 * 				See table A.2 of the book ARM System Developer’s Guide.
 	 * Return:		boolean	
 	 *****************************************************************************************/
-	protected boolean checkCondition(int cond) {
+	protected static boolean checkCondition(int cpsr, int cond) {
 		/************************************************************************	
 		 * Flag					Bit
 		 * Negative		->  	31
@@ -93,10 +111,10 @@ public abstract class OperationsCPU {
 		 * Overflow		->  	28 
 		 * If the specific bit of the flag is 1, the flag is true. Else, is false.
 		 ************************************************************************/
-		boolean N = (regCPSR >>> 31) == 1 ? true : false, 
-				Z = (regCPSR >>> 30) == 1 ? true : false, 
-				C = (regCPSR >>> 29) == 1 ? true : false, 
-				V = (regCPSR >>> 28) == 1 ? true : false;
+		boolean N = (cpsr >>> 31) == 1 ? true : false, 
+				Z = (cpsr >>> 30) == 1 ? true : false, 
+				C = (cpsr >>> 29) == 1 ? true : false, 
+				V = (cpsr >>> 28) == 1 ? true : false;
 		
 		boolean result = false;
 		switch(decodeCond(cond)) {
@@ -207,22 +225,47 @@ public abstract class OperationsCPU {
 		 * In the cpsr E=1 so data accesses will be big-endian
 		 ******************************************************/
 		boolean E = ((regCPSR >>> 9) & 0x1) == 1 ? true : false;
+		if(cache != null)
+			cache.access(address, reg[15], CacheCPU.DATA);
+		if(accesses != null)
+			access(address, false);
+		
+		/***********************************************
+		 * The addresses of the devices of the bus are 
+		 * read from the device, the others from RAM
+		 ***********************************************/
+		if(bus != null) {
+			int region = bus.load(address);
+			if(region >= 0) {
+				int data = bus.read(region, address);
+				countEffects++;
+				switch (sizeData) {
+				case Byte:
+					return signal == signType.signed ? (byte) data : data & 0xFF;
+				case Short:
+					return signal == signType.signed ? (short) data : data & 0xFFFF;
+				default:
+					return data;
+				}
+			}
+		}
 		
 		/***********************************************
 		 * if dataMemory has already loaded the address, 
-		 * then the data is loaded, if not loaded 0
+		 * then the data is loaded, if not loaded 0.
+		 * Done in one access, so a store of another 
+		 * core to a shared memory is not overwritten
 		 ***********************************************/
-		int data;
-		if(dataMemory.containsKey(address))
-			data = dataMemory.get(address);
-		else {
-			dataMemory.put(address, 0);
-			data = 0;
+		Integer value = dataAccess().putIfAbsent(address, 0);
+		if(value == null) {
+			if(undo != null)
+				undo.write(UndoLogCPU.DATA, address, null);
 			/******************************************
 			 * If data = 0, treatment is not necessary
 			 ******************************************/
-			return data;
+			return 0;
 		}
+		int data = value;
 		
 		if(!E) {
 			/****************************
@@ -231,12 +274,12 @@ public abstract class OperationsCPU {
 			switch (sizeData) {
 			case Byte: 
 				data &= 0x000000FF;
-				if((signal == signType.signed) && (dataMemory.get(address) < 0)) 
+				if((signal == signType.signed) && (value < 0)) 
 					data |= 0xFFFFFF00;
 				break;
 			case Short:
 				data &= 0x0000FFFF;
-				if((signal == signType.signed) && (dataMemory.get(address) < 0)) 
+				if((signal == signType.signed) && (value < 0)) 
 					data |= 0xFFFF0000;
 				break;
 			case Int:
@@ -250,12 +293,12 @@ public abstract class OperationsCPU {
 			switch (sizeData) {
 			case Byte: 
 				data = (data & 0xFF000000) >>> 24;
-				if(signal == signType.signed && (dataMemory.get(address) & 0x1) == 1) 
+				if(signal == signType.signed && (value & 0x1) == 1) 
 					data |= 0xFFFFFF00;
 				break;
 			case Short:
 				data = ((data & 0xFF000000) >>> 24) | ((data & 0x00FF0000) >>> 8);
-				if(signal == signType.signed && (dataMemory.get(address) & 0x1) == 1) 
+				if(signal == signType.signed && (value & 0x1) == 1) 
 					data |= 0xFFFF0000;
 				break;
 			case Int:
@@ -277,12 +320,29 @@ public abstract class OperationsCPU {
 		 * In the cpsr E=1 so data accesses will be big-endian
 		 ******************************************************/
 		boolean E = ((regCPSR >>> 9) & 0x1) == 1 ? true : false;
+		if(cache != null)
+			cache.access(address, reg[15], CacheCPU.DATA);
+		countStores++;
+		if(accesses != null)
+			access(address, true);
+		if(bus != null) {
+			int region = bus.store(address);
+			if(region >= 0) {
+				bus.write(region, address, sizeData == dataType.Byte ? data & 0xFF 
+						: sizeData == dataType.Short ? data & 0xFFFF : data);
+				return;
+			}
+		}
+		
+		Map<Integer, Integer> memory = dataAccess();
+		if(undo != null)
+			undo.write(UndoLogCPU.DATA, address, memory.get(address));
 		
 		/****************************
 		 * access little-endian mode
 		 ****************************/
 		if(!E)
-			dataMemory.put(address, data);
+			memory.put(address, data);
 		else {
 			/****************************
 			 * access big-endian mode
@@ -290,35 +350,71 @@ public abstract class OperationsCPU {
 			switch (sizeData) {
 			case Byte: 
 				data = (data & 0xFF000000) >>> 24;
-				dataMemory.put(address, data);
+				memory.put(address, data);
 				break;
 			case Short:
 				data = ((data & 0xFF000000) >>> 24) | ((data & 0x00FF0000) >>> 8); 
-				dataMemory.put(address, data);
+				memory.put(address, data);
 				break;
 			case Int:
 				data =  ((data & 0xFF000000) >>> 24) | ((data & 0x00FF0000) >>> 8) | 
 						((data & 0x0000FF00) <<   8) | ((data & 0x000000FF) << 24); 
-				dataMemory.put(address, data);
+				memory.put(address, data);
 				break;
 			}
 		}
 	}
 	
+	/*****************************************************************************************
+	 * Name: 		access
+	 * Description:	Adds a data access of the step to accesses, as the pair address, 1 for 
+	 * 				a store or 0 for a load. Whoever set accesses resets countAccesses.
+	 * Return:		void 	
+	 *****************************************************************************************/
+	protected void access(int address, boolean store) {
+		if(countAccesses + 2 > accesses.length)
+			accesses = Arrays.copyOf(accesses, accesses.length * 2);
+		accesses[countAccesses++] = address;
+		accesses[countAccesses++] = store ? 1 : 0;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		dataAccess
+	 * Description:	Returns the memory of the loads and stores of data: the shared memory of 
+	 * 				a multi-core run, that replaces dataMemory, else dataMemory
+	 * Return:		Map<Integer, Integer> 	
+	 *****************************************************************************************/
+	protected Map<Integer, Integer> dataAccess() {
+		return sharedMemory != null ? sharedMemory : dataMemory;
+	}
+	
 	/*****************************************************************************************
 	 * Name: 		pushStack
 	 * Description:	Store values on the memory stack
 	 * Return:		void 	
 	 *****************************************************************************************/
 	protected void pushStack(byte regs, boolean lr) {
+		countStores++;
 		for(int i = 0; i < 8; i++) { 
 			if(((regs >> i) & 0x1) == 1) {
 				reg[13] -= 4;
+				if(cache != null)
+					cache.access(reg[13], reg[15], CacheCPU.STACK);
+				if(undo != null)
+					undo.write(UndoLogCPU.STACK, reg[13], stackMemory.get(reg[13]));
+				if(accesses != null)
+					access(reg[13], true);
 				stackMemory.put(reg[13], reg[i]);
 			}
 		}
 		if(lr) {
 			reg[13] -= 4;
+			if(cache != null)
+				cache.access(reg[13], reg[15], CacheCPU.STACK);
+			if(undo != null)
+				undo.write(UndoLogCPU.STACK, reg[13], stackMemory.get(reg[13]));
+			if(accesses != null)
+				access(reg[13], true);
 			stackMemory.put(reg[13], reg[14]);
 		}
 	}
@@ -331,6 +427,10 @@ public abstract class OperationsCPU {
 	protected void popStack(byte regs, boolean pc) {
 		for(int i = 0; i < 8; i++) { 
 			if(((regs >> i) & 0x1) == 1) {
+				if(cache != null)
+					cache.access(reg[13], reg[15], CacheCPU.STACK);
+				if(accesses != null)
+					access(reg[13], false);
 				/***********************************************
 				 * if stackMemory has already loaded the address, 
 				 * then the data is loaded, if not loaded 0
@@ -340,6 +440,8 @@ public abstract class OperationsCPU {
 					reg[13] += 4;
 				}
 				else {
+					if(undo != null)
+						undo.write(UndoLogCPU.STACK, reg[13], null);
 					stackMemory.put(reg[13], 0);
 					reg[i] =  0;
 					reg[13] += 4;
@@ -347,6 +449,10 @@ public abstract class OperationsCPU {
 			}
 		}
 		if(pc) {
+			if(cache != null)
+				cache.access(reg[13], reg[15], CacheCPU.STACK);
+			if(accesses != null)
+				access(reg[13], false);
 			/***********************************************
 			 * if stackMemory has already loaded the address, 
 			 * then the data is loaded, if not loaded 0
@@ -356,6 +462,8 @@ public abstract class OperationsCPU {
 				reg[13] += 4;
 			}
 			else {
+				if(undo != null)
+					undo.write(UndoLogCPU.STACK, reg[13], null);
 				stackMemory.put(reg[13], 0);
 				reg[15] =  0;
 				reg[13] += 4;
@@ -365,19 +473,29 @@ public abstract class OperationsCPU {
 	
 	/*****************************************************************************************
 	 * Name: 		updateCPSR_N_Z
-	 * Description:	Updates the negative and zero flags
+	 * Description:	Updates the cpsr, see flagsN_Z()
 	 * Return:		void 	
 	 *****************************************************************************************/
 	protected void updateCPSR_N_Z(int number) {
+		regCPSR = flagsN_Z(regCPSR, number);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flagsN_Z
+	 * Description:	Updates the negative and zero flags
+	 * 				Returns the cpsr with the flags updated.
+	 * Return:		int 	
+	 *****************************************************************************************/
+	protected static int flagsN_Z(int cpsr, int number) {
 		/******************************************
 		 * Negative flag, records bit 31 of the 
 		 * result of flag-setting operations.
 		 * Bit -> 31
 		 * ****************************************/
 		if((number >>> 31) == 1)
-			regCPSR |= 1 << 31;
+			cpsr |= 1 << 31;
 		else
-			regCPSR &= ~(1 << 31);
+			cpsr &= ~(1 << 31);
 		
 		/******************************************
 		 * Zero flag, records if the result of a 
@@ -385,24 +503,34 @@ public abstract class OperationsCPU {
 		 * Bit -> 30
 		 ******************************************/
 		if(number == 0)
-			regCPSR |= 1 << 30;
+			cpsr |= 1 << 30;
 		else
-			regCPSR &= ~(1 << 30);
-			
+			cpsr &= ~(1 << 30);
+		return cpsr;
 	}
-	
+
 	/*****************************************************************************************
-	 * Name: 		updateCPSR_C_Shift
-	 * Description:	Updates the flag carry used by the shifting circuit
-	 * 				See table A.3 of the book ARM System Developer’s Guide.
+	 * Name: 		updateCPSR_C_shift
+	 * Description:	Updates the cpsr, see flagsC_shift()
 	 * Return:		void 	
 	 *****************************************************************************************/
 	protected void updateCPSR_C_shift(int number, int k, shiftType shift) {
+		regCPSR = flagsC_shift(regCPSR, number, k, shift);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flagsC_shift
+	 * Description:	Updates the flag carry used by the shifting circuit
+	 * 				See table A.3 of the book ARM System Developer’s Guide.
+	 * 				Returns the cpsr with the flags updated.
+	 * Return:		int 	
+	 *****************************************************************************************/
+	protected static int flagsC_shift(int cpsr, int number, int k, shiftType shift) {
 		boolean C;
 		switch (shift) {
 		case LSL:
 			if(k == 0)
-				return;
+				return cpsr;
 			else if((k >= 1) && (k <= 31)) 
 				C = ((number >>> (k-1)) & 0x1) == 1 ? true : false;
 			else if(k == 32)
@@ -412,7 +540,7 @@ public abstract class OperationsCPU {
 			break;
 		case LSR:
 			if(k == 0)
-				return;
+				return cpsr;
 			else if((k >= 1) && (k <= 31)) 
 				C = ((number >> (k-1)) & 0x1) == 1 ? true : false;
 			else if(k == 32)
@@ -422,26 +550,26 @@ public abstract class OperationsCPU {
 			break;
 		case ASR:
 			if(k == 0)
-				return;
+				return cpsr;
 			else if((k >= 1) && (k <= 31)) 
 				C = ((number >> (k-1)) & 0x1) == 1 ? true : false;
 			else if(k >= 32)
 				C = ((number >> 31) & 0x1) == 1 ? true : false;
 			else
-				return;	
+				return cpsr;	
 			break;
 		case ROR:
 			if(k == 0)
-				return;
+				return cpsr;
 			else if((k >= 1) && (k <= 31)) 
 				C = ((number >> (k-1)) & 0x1) == 1 ? true : false;
 			else if(k >= 32)
 				C = ((number >> ((k-1)&31)) & 0x1)  == 1 ? true : false;
 			else
-				return;
+				return cpsr;
 			break;
 		default:
-			return;
+			return cpsr;
 		}
 		
 		/*********************
@@ -449,24 +577,34 @@ public abstract class OperationsCPU {
 		 * Bit -> 29
 		 ********************/
 		if(C)
-			regCPSR |= 1 << 29;
+			cpsr |= 1 << 29;
 		else 
-			regCPSR &= ~(1 << 29);
-			
+			cpsr &= ~(1 << 29);
+		return cpsr;
 	}
-	
+
 	/*****************************************************************************************
 	 * Name: 		updateCPSR_ADD_signed
+	 * Description:	Updates the cpsr, see flagsADD_signed()
+	 * Return:		void 	
+	 *****************************************************************************************/
+	protected void updateCPSR_ADD_signed(int n1, int n2) {
+		regCPSR = flagsADD_signed(regCPSR, n1, n2);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flagsADD_signed
 	 * Description:	Updates the negative, zero, carry and overflow flags when a 
 	 *				signed sum occurs
-	 * Return:		void 	
+	 * 				Returns the cpsr with the flags updated.
+	 * Return:		int 	
 	 *****************************************************************************************/
-	protected void updateCPSR_ADD_signed(int n1, int n2) {		
+	protected static int flagsADD_signed(int cpsr, int n1, int n2) {		
 		/*************************************************
 		 * sum result and updates negative and zero flags
 		 *************************************************/
 		int r = n1 + n2; 
-		updateCPSR_N_Z(r);
+		cpsr = flagsN_Z(cpsr, r);
 		
 		/*********************************************
 		 * Bitmasks of the Carry and Overflow flags
@@ -484,41 +622,100 @@ public abstract class OperationsCPU {
 		 * sum of two positive numbers. Overflow if msbR == 1 and carry is not possible
 		 ************************************************************************************/
 		case 0:
-			regCPSR = (msbR == 1) ? regCPSR | V : regCPSR & v;
-			regCPSR &= c;
+			cpsr = (msbR == 1) ? cpsr | V : cpsr & v;
+			cpsr &= c;
 			break;
 		/************************************************************************************
 		 * sum of two numbers with different signs. No overflow and carry occurs if msbR == 0
 		 ************************************************************************************/
 		case 1:
-			regCPSR = (msbR == 0) ? regCPSR | C : regCPSR & c;
-			regCPSR &= v;
+			cpsr = (msbR == 0) ? cpsr | C : cpsr & c;
+			cpsr &= v;
 			break;
 		/************************************************************************************
 		 *  sum of two negative numbers. Overflow if msbR == 0 and carry always occurs
 		 ************************************************************************************/
 		case 2: 
-			regCPSR = (msbR == 0) ? regCPSR | V : regCPSR & v;
-			regCPSR |= C;
+			cpsr = (msbR == 0) ? cpsr | V : cpsr & v;
+			cpsr |= C;
 			break;
 		}
-	}	
+		return cpsr;
+	}
 
 	/*****************************************************************************************
-	 * Name: 		updateCPSR_ADD_signed
+	 * Name: 		updateCPSR_SUB_signed
+	 * Description:	Updates the cpsr, see flagsSUB_signed()
+	 * Return:		void 	
+	 *****************************************************************************************/
+	protected void updateCPSR_SUB_signed(int n1, int n2) {
+		regCPSR = flagsSUB_signed(regCPSR, n1, n2);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flagsSUB_signed
 	 * Description:	Updates the negative, zero, carry and overflow flags when a 
 	 * 				subtraction occurs
-	 * Return:		void 	
+	 * 				Returns the cpsr with the flags updated.
+	 * Return:		int 	
 	 *****************************************************************************************/
-	protected void updateCPSR_SUB_signed(int n1, int n2) {	
+	protected static int flagsSUB_signed(int cpsr, int n1, int n2) {	
 		/**************************************************************
 		 *  The subtraction takes place with two's complement, 
 		 *  n1 + ~n2 + 1, i.e. sum. o it is possible to use the 
-		 *  updateCPSR_ADD_signed(int n1, int n2) method.
+		 *  flagsADD_signed(int cpsr, int n1, int n2) method.
 		 *  n1 - n2 = n1 + ~n2 + 1 
 		 **************************************************************/
 		n2 = ~n2 + 1; 
-		updateCPSR_ADD_signed(n1, n2);
+		return flagsADD_signed(cpsr, n1, n2);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		exceptionEntry
+	 * Description:	Saves R0-R3, R12, LR, the return address and the cpsr on the memory 
+	 * 				stack, as the Cortex-M, and goes to the handler with LR = excReturn
+	 * Return:		void 	
+	 *****************************************************************************************/
+	protected void exceptionEntry(int handler, int excReturn) {
+		int[] frame = {reg[0], reg[1], reg[2], reg[3], reg[12], reg[14], reg[15], regCPSR};
+		for(int i = frame.length - 1; i >= 0; i--) {
+			reg[13] -= 4;
+			if(undo != null)
+				undo.write(UndoLogCPU.STACK, reg[13], stackMemory.get(reg[13]));
+			if(accesses != null)
+				access(reg[13], true);
+			stackMemory.put(reg[13], frame[i]);
+		}
+		countStores++;
+		reg[14] = excReturn;
+		reg[15] = handler;
+		attPc = true;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		exceptionReturn
+	 * Description:	Restores the registers and the cpsr saved by exceptionEntry() and goes 
+	 * 				back to the return address
+	 * Return:		void 	
+	 *****************************************************************************************/
+	protected void exceptionReturn() {
+		int[] frame = new int[8];
+		for(int i = 0; i < frame.length; i++) {
+			if(accesses != null)
+				access(reg[13], false);
+			Integer data = stackMemory.get(reg[13]);
+			frame[i] = data != null ? data : 0;
+			reg[13] += 4;
+		}
+		reg[0] = frame[0];
+		reg[1] = frame[1];
+		reg[2] = frame[2];
+		reg[3] = frame[3];
+		reg[12] = frame[4];
+		reg[14] = frame[5];
+		reg[15] = frame[6];
+		regCPSR = frame[7];
+		attPc = true;
 	}
 	
 	/*****************************************************************************************
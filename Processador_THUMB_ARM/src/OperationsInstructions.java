@@ -1440,6 +1440,10 @@ public abstract class OperationsInstructions extends OperationsCPU {
 	protected void BKPT_immed8() {
 		int immed8 = (bits_7_4 << 4) + (bits_3_0);
 		if(!modeCPU) formattedInstruction = "BKPT #" + immed8;
+		else if(immed8 == SemihostingCPU.NUMBER && semihosting != null) {
+			reg[0] = semihosting.call(this);
+			countEffects++;
+		}
 	}
 	
 	/*****************************************************************************************
@@ -1555,6 +1559,10 @@ public abstract class OperationsInstructions extends OperationsCPU {
 	protected void SWI() {
 		int immed8 = (bits_7_4 << 4) + bits_3_0;
 		if(!modeCPU) formattedInstruction = "SWI #" + immed8;
+		else if(immed8 == SemihostingCPU.NUMBER && semihosting != null) {
+			reg[0] = semihosting.call(this);
+			countEffects++;
+		}
 	}
 
 	/*****************************************************************************************
@@ -0,0 +1,430 @@
+/*************************************************************************************
+ * @filename: 		OptionsCPU.java
+ * @description:	Class that holds the options of a simulation run.
+ * @version:		1.0
+ * @created:  		10/18/2026, 09:12:40
+ * @modified: 		10/18/2026, 09:12:40
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class OptionsCPU {
+	private boolean profile = false;
+	private boolean callGraph = false;
+	private String timing = null;
+	private String cache = null;
+	private boolean trace = false;
+	private int flight = 32;
+	private int saveStep = -1;
+	private String saveFile = null;
+	private String restoreFile = null;
+	private int repeat = 0;
+	private int maxSteps = 10000;
+	private int checkpointStep = 0;
+	private String checkpointFile = null;
+	private String resumeFile = null;
+	private String decodeCacheDir = null;
+	private String batchDir = null;
+	private String watchDir = null;
+	private String serverAddress = null;
+	private String clusterWorkers = null;
+	private String lanesFile = null;
+	private int cores = 0;
+	private String sysTick = null;
+	private String uart = null;
+	private boolean cycleCounter = false;
+	private boolean semihosting = false;
+	private int gdbPort = 0;
+	private int reverse = 0;
+	private OutputStream uartSink = null;			// file of the UART, opened once per run
+
+	/*****************************************************************************************
+	 * Name: 		parseOption
+	 * Description: Applies the command line option at args[i]. Returns the number of
+	 * 				arguments consumed, or 0 if the option is unknown.
+	 * Return:		int
+	 *****************************************************************************************/
+	public int parseOption(String[] args, int i) throws IllegalArgumentException {
+		switch (args[i]) {
+		case "-profile":
+			profile = true;
+			return 1;
+		case "-callgraph":
+			callGraph = true;
+			return 1;
+		case "-timing":
+			timing = value(args, i);
+			TimingModel.forName(timing);
+			return 2;
+		case "-cache":
+			cache = value(args, i);
+			CacheCPU.forSpec(cache, 0);
+			return 2;
+		case "-trace":
+			trace = true;
+			return 1;
+		case "-flight":
+			flight = Integer.parseInt(value(args, i));
+			if(flight < 0)
+				throw new IllegalArgumentException("Invalid size of the flight recorder: " + flight);
+			return 2;
+		case "-save":
+			saveStep = Integer.parseInt(value(args, i));
+			saveFile = value(args, i + 1);
+			if(saveStep < 1)
+				throw new IllegalArgumentException("Invalid step of the snapshot: " + saveStep);
+			return 3;
+		case "-restore":
+			restoreFile = value(args, i);
+			return 2;
+		case "-steps":
+			maxSteps = Integer.parseInt(value(args, i));
+			if(maxSteps < 1)
+				throw new IllegalArgumentException("Invalid limit of operations: " + maxSteps);
+			return 2;
+		case "-checkpoint":
+			checkpointStep = Integer.parseInt(value(args, i));
+			checkpointFile = value(args, i + 1);
+			if(checkpointStep < 1)
+				throw new IllegalArgumentException("Invalid interval of the checkpoints: " + checkpointStep);
+			return 3;
+		case "-resume":
+			resumeFile = value(args, i);
+			return 2;
+		case "-decodecache":
+			decodeCacheDir = value(args, i);
+			return 2;
+		case "-batch":
+			batchDir = value(args, i);
+			return 2;
+		case "-watch":
+			watchDir = value(args, i);
+			return 2;
+		case "-server":
+			serverAddress = value(args, i);
+			return 2;
+		case "-cluster":
+			clusterWorkers = value(args, i);
+			return 2;
+		case "-lanes":
+			lanesFile = value(args, i);
+			return 2;
+		case "-cores":
+			cores = Integer.parseInt(value(args, i));
+			if(cores < 1)
+				throw new IllegalArgumentException("Invalid number of cores: " + cores);
+			return 2;
+		case "-systick":
+			sysTick = value(args, i);
+			EventScheduler.forSpec(sysTick, 0);
+			return 2;
+		case "-uart":
+			uart = value(args, i);
+			return 2;
+		case "-cyccnt":
+			cycleCounter = true;
+			return 1;
+		case "-semihost":
+			semihosting = true;
+			return 1;
+		case "-gdb":
+			gdbPort = Integer.parseInt(value(args, i));
+			if(gdbPort < 1 || gdbPort > 0xFFFF)
+				throw new IllegalArgumentException("Invalid port of gdb: " + gdbPort);
+			return 2;
+		case "-reverse":
+			reverse = Integer.parseInt(value(args, i));
+			if(reverse < 1)
+				throw new IllegalArgumentException("Invalid interval of the snapshots: " + reverse);
+			return 2;
+		case "-repeat":
+			repeat = Integer.parseInt(value(args, i));
+			if(repeat < 0)
+				throw new IllegalArgumentException("Invalid number of repetitions: " + repeat);
+			return 2;
+		default:
+			return 0;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		getConfig
+	 * Description: Returns the options that change the output_*.txt of a run started from 
+	 * 				the beginning of the program
+	 * Return:		String
+	 *****************************************************************************************/
+	public String getConfig() {
+		return "steps=" + maxSteps + ";timing=" + timing + ";flight=" + flight
+				+ (sysTick != null ? ";systick=" + sysTick : "") + (cycleCounter ? ";cyccnt" : "");
+	}
+
+	/*****************************************************************************************
+	 * Name: 		hasSideOutputs
+	 * Description: Returns true if a run writes other files than output_*.txt
+	 * Return:		boolean
+	 *****************************************************************************************/
+	public boolean hasSideOutputs() {
+		return profile || callGraph || cache != null || trace || saveFile != null || checkpointFile != null
+				|| uart != null || semihosting;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		getUartSink
+	 * Description: Returns the stream written by the UART, the standard output for -. The
+	 * 				file is opened by the first simulation and shared by the next ones of the
+	 * 				run (-batch, -repeat), so their bytes follow each other, until closeUart().
+	 * Return:		OutputStream
+	 *****************************************************************************************/
+	public synchronized OutputStream getUartSink() throws FileNotFoundException {
+		if(uartSink == null)
+			uartSink = uart.equals("-") ? System.out : new FileOutputStream(uart);
+		return uartSink;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		closeUart
+	 * Description: Closes the file of the UART, if it was opened
+	 * Return:		void
+	 *****************************************************************************************/
+	public synchronized void closeUart() {
+		if(uartSink == null || uartSink == System.out)
+			return;
+		try {
+			uartSink.close();
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the UART: " + e.getMessage());
+		}
+		uartSink = null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		value
+	 * Description: Returns the value of the option at args[i]
+	 * Return:		String
+	 *****************************************************************************************/
+	private String value(String[] args, int i) throws IllegalArgumentException {
+		if(i + 1 >= args.length)
+			throw new IllegalArgumentException("Missing value of the option " + args[i]);
+		return args[i + 1];
+	}
+
+	public boolean isProfile() {
+		return profile;
+	}
+
+	public void setProfile(boolean profile) {
+		this.profile = profile;
+	}
+
+	public boolean isCallGraph() {
+		return callGraph;
+	}
+
+	public void setCallGraph(boolean callGraph) {
+		this.callGraph = callGraph;
+	}
+
+	public String getTiming() {
+		return timing;
+	}
+
+	public void setTiming(String timing) {
+		this.timing = timing;
+	}
+
+	public String getCache() {
+		return cache;
+	}
+
+	public void setCache(String cache) {
+		this.cache = cache;
+	}
+
+	public boolean isTrace() {
+		return trace;
+	}
+
+	public void setTrace(boolean trace) {
+		this.trace = trace;
+	}
+
+	public int getFlight() {
+		return flight;
+	}
+
+	public void setFlight(int flight) {
+		this.flight = flight;
+	}
+
+	public int getSaveStep() {
+		return saveStep;
+	}
+
+	public String getSaveFile() {
+		return saveFile;
+	}
+
+	public void setSave(int saveStep, String saveFile) {
+		this.saveStep = saveStep;
+		this.saveFile = saveFile;
+	}
+
+	public String getRestoreFile() {
+		return restoreFile;
+	}
+
+	public void setRestoreFile(String restoreFile) {
+		this.restoreFile = restoreFile;
+	}
+
+	public int getRepeat() {
+		return repeat;
+	}
+
+	public void setRepeat(int repeat) {
+		this.repeat = repeat;
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+
+	public int getCheckpointStep() {
+		return checkpointStep;
+	}
+
+	public String getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	public void setCheckpoint(int checkpointStep, String checkpointFile) {
+		this.checkpointStep = checkpointStep;
+		this.checkpointFile = checkpointFile;
+	}
+
+	public String getResumeFile() {
+		return resumeFile;
+	}
+
+	public void setResumeFile(String resumeFile) {
+		this.resumeFile = resumeFile;
+	}
+
+	public String getDecodeCacheDir() {
+		return decodeCacheDir;
+	}
+
+	public void setDecodeCacheDir(String decodeCacheDir) {
+		this.decodeCacheDir = decodeCacheDir;
+	}
+
+	public String getBatchDir() {
+		return batchDir;
+	}
+
+	public void setBatchDir(String batchDir) {
+		this.batchDir = batchDir;
+	}
+
+	public String getWatchDir() {
+		return watchDir;
+	}
+
+	public void setWatchDir(String watchDir) {
+		this.watchDir = watchDir;
+	}
+
+	public String getServerAddress() {
+		return serverAddress;
+	}
+
+	public void setServerAddress(String serverAddress) {
+		this.serverAddress = serverAddress;
+	}
+
+	public String getClusterWorkers() {
+		return clusterWorkers;
+	}
+
+	public void setClusterWorkers(String clusterWorkers) {
+		this.clusterWorkers = clusterWorkers;
+	}
+
+	public String getLanesFile() {
+		return lanesFile;
+	}
+
+	public void setLanesFile(String lanesFile) {
+		this.lanesFile = lanesFile;
+	}
+
+	public int getCores() {
+		return cores;
+	}
+
+	public void setCores(int cores) {
+		this.cores = cores;
+	}
+
+	public String getSysTick() {
+		return sysTick;
+	}
+
+	public void setSysTick(String sysTick) {
+		this.sysTick = sysTick;
+	}
+
+	public String getUart() {
+		return uart;
+	}
+
+	public void setUart(String uart) {
+		this.uart = uart;
+	}
+
+	public boolean isCycleCounter() {
+		return cycleCounter;
+	}
+
+	public void setCycleCounter(boolean cycleCounter) {
+		this.cycleCounter = cycleCounter;
+	}
+
+	public boolean isSemihosting() {
+		return semihosting;
+	}
+
+	public void setSemihosting(boolean semihosting) {
+		this.semihosting = semihosting;
+	}
+
+	public int getGdbPort() {
+		return gdbPort;
+	}
+
+	public void setGdbPort(int gdbPort) {
+		this.gdbPort = gdbPort;
+	}
+
+	public int getReverse() {
+		return reverse;
+	}
+
+	public void setReverse(int reverse) {
+		this.reverse = reverse;
+	}
+
+}
@@ -0,0 +1,367 @@
+/*************************************************************************************
+ * @filename: 		PagedMemory.java
+ * @description:	Memory of the simulation divided in pages of consecutive addresses.
+ * 					Keeps the behavior of a sorted map from address to value, so it
+ * 					replaces the TreeMap of the memories. The pages can be shared
+ * 					between a memory and its forks and are only copied when one of
+ * 					them writes to the page (copy-on-write). The pages written since
+ * 					mark() are tracked, so reset() only reverts those pages.
+ * @version:		1.0
+ * @created:  		10/18/2026, 13:52:06
+ * @modified: 		10/18/2026, 13:52:06
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PagedMemory extends AbstractMap<Integer, Integer> {
+	protected static final int BITS_PAGE = 8;
+	protected static final int SIZE_PAGE = 1 << BITS_PAGE;		// addresses per page
+
+	/*****************************************************************************
+	 * Page of SIZE_PAGE addresses. present has one bit per address, set if the
+	 * address is in the memory. owners is the number of memories that share
+	 * the page.
+	 *****************************************************************************/
+	protected static class Page {
+		int[] values = new int[SIZE_PAGE];
+		long[] present = new long[SIZE_PAGE / 64];
+		int size = 0;
+		AtomicInteger owners = new AtomicInteger(1);
+
+		Page copy() {
+			Page page = new Page();
+			page.values = values.clone();
+			page.present = present.clone();
+			page.size = size;
+			return page;
+		}
+	}
+
+	protected HashMap<Integer, Page> pages = new HashMap<Integer, Page>();
+	private int size = 0;
+	private int lastNumber = 0;			// last page accessed
+	private Page lastPage = null;
+
+	/************************************************************************
+	 * State saved by mark(). The pages of baseline are shared with pages,
+	 * so the first write to one of them after mark() copies it and adds its
+	 * number to dirty. cleared is set if clear() was called since mark().
+	 ************************************************************************/
+	private HashMap<Integer, Page> baseline = null;
+	private int baselineSize = 0;
+	private int[] dirty = new int[16];
+	private int countDirty = 0;
+	private boolean cleared = false;
+
+	public PagedMemory() {
+	}
+
+	/*****************************************************************************************
+	 * Name: 		fork
+	 * Description: Returns a new memory with the same contents that shares all the pages
+	 * 				with this memory
+	 * Return:		PagedMemory
+	 *****************************************************************************************/
+	public PagedMemory fork() {
+		PagedMemory memory = new PagedMemory();
+		for (Page page : pages.values())
+			page.owners.incrementAndGet();
+		memory.pages.putAll(pages);
+		memory.size = size;
+		return memory;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		assign
+	 * Description: Replaces the contents by the ones of the memory, sharing all its pages
+	 * Return:		void
+	 *****************************************************************************************/
+	public void assign(PagedMemory memory) {
+		clear();
+		for (Page page : memory.pages.values())
+			page.owners.incrementAndGet();
+		pages.putAll(memory.pages);
+		size = memory.size;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		mark
+	 * Description: Saves the current contents as the state restored by reset()
+	 * Return:		void
+	 *****************************************************************************************/
+	public void mark() {
+		if(baseline != null)
+			for (Page page : baseline.values())
+				page.owners.decrementAndGet();
+		baseline = new HashMap<Integer, Page>(pages);
+		for (Page page : baseline.values())
+			page.owners.incrementAndGet();
+		baselineSize = size;
+		countDirty = 0;
+		cleared = false;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		reset
+	 * Description: Restores the contents saved by mark(), putting back only the pages
+	 * 				written since then. Without mark() the memory is cleared.
+	 * Return:		void
+	 *****************************************************************************************/
+	public void reset() {
+		if(baseline == null || cleared) {
+			clear();
+			if(baseline != null) {
+				for (Page page : baseline.values())
+					page.owners.incrementAndGet();
+				pages.putAll(baseline);
+				size = baselineSize;
+			}
+		}
+		else {
+			for(int i = 0; i < countDirty; i++) {
+				Page page = pages.remove(dirty[i]);
+				if(page != null) {
+					page.owners.decrementAndGet();
+					size -= page.size;
+				}
+				page = baseline.get(dirty[i]);
+				if(page != null) {
+					page.owners.incrementAndGet();
+					pages.put(dirty[i], page);
+					size += page.size;
+				}
+			}
+		}
+		countDirty = 0;
+		cleared = false;
+		lastPage = null;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		getCountDirty
+	 * Description: Returns the number of pages written since mark() or reset()
+	 * Return:		int
+	 *****************************************************************************************/
+	public int getCountDirty() {
+		return countDirty;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		changedPages
+	 * Description: Returns the numbers of the pages that were written or removed since
+	 * 				previous was forked from this memory
+	 * Return:		int[]
+	 *****************************************************************************************/
+	public int[] changedPages(PagedMemory previous) {
+		int[] numbers = new int[pages.size() + previous.pages.size()];
+		int count = 0;
+		for (Map.Entry<Integer, Page> entry : pages.entrySet())
+			if(previous.pages.get(entry.getKey()) != entry.getValue())
+				numbers[count++] = entry.getKey();
+		for (Integer number : previous.pages.keySet())
+			if(!pages.containsKey(number))
+				numbers[count++] = number;
+		return Arrays.copyOf(numbers, count);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		writePage
+	 * Description: Writes the present bits and the values of the page in the buffer,
+	 * 				zeros if the page does not exist
+	 * Return:		void
+	 *****************************************************************************************/
+	public void writePage(int number, ByteBuffer out) {
+		Page page = pages.get(number);
+		for(int i = 0; i < SIZE_PAGE / 64; i++)
+			out.putLong(page != null ? page.present[i] : 0);
+		for(int i = 0; i < SIZE_PAGE; i++)
+			out.putInt(page != null ? page.values[i] : 0);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		page
+	 * Description: Returns the page with the number, or null if it does not exist
+	 * Return:		Page
+	 *****************************************************************************************/
+	protected Page page(int number) {
+		if(lastPage != null && lastNumber == number)
+			return lastPage;
+		Page page = pages.get(number);
+		if(page != null) {
+			lastNumber = number;
+			lastPage = page;
+		}
+		return page;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		writablePage
+	 * Description: Returns the page with the number ready to be written, creating it if it
+	 * 				does not exist and copying it if it is shared
+	 * Return:		Page
+	 *****************************************************************************************/
+	protected Page writablePage(int number) {
+		Page page = page(number);
+		if(page == null)
+			page = new Page();
+		else if(page.owners.get() > 1) {
+			Page copy = page.copy();
+			page.owners.decrementAndGet();
+			page = copy;
+		}
+		else
+			return page;
+		if(baseline != null) {
+			if(countDirty == dirty.length)
+				dirty = Arrays.copyOf(dirty, countDirty * 2);
+			dirty[countDirty++] = number;
+		}
+		pages.put(number, page);
+		lastNumber = number;
+		lastPage = page;
+		return page;
+	}
+
+	@Override
+	public Integer get(Object key) {
+		if(!(key instanceof Integer))
+			return null;
+		int address = (Integer) key;
+		Page page = page(address >> BITS_PAGE);
+		int offset = address & (SIZE_PAGE - 1);
+		if(page == null || ((page.present[offset >>> 6] >>> offset) & 0x1) == 0)
+			return null;
+		return page.values[offset];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public Integer put(Integer key, Integer value) {
+		int address = key;
+		Page page = writablePage(address >> BITS_PAGE);
+		int offset = address & (SIZE_PAGE - 1);
+		Integer old = null;
+		if(((page.present[offset >>> 6] >>> offset) & 0x1) == 1)
+			old = page.values[offset];
+		else {
+			page.present[offset >>> 6] |= 1L << offset;
+			page.size++;
+			size++;
+		}
+		page.values[offset] = value;
+		return old;
+	}
+
+	@Override
+	public Integer remove(Object key) {
+		Integer old = get(key);
+		if(old != null) {
+			int address = (Integer) key;
+			Page page = writablePage(address >> BITS_PAGE);
+			int offset = address & (SIZE_PAGE - 1);
+			page.present[offset >>> 6] &= ~(1L << offset);
+			page.size--;
+			size--;
+		}
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		for (Page page : pages.values())
+			page.owners.decrementAndGet();
+		pages.clear();
+		size = 0;
+		lastPage = null;
+		cleared = baseline != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		entrySet
+	 * Description: Returns the entries sorted by address, like a TreeMap
+	 * Return:		Set<Map.Entry<Integer, Integer>>
+	 *****************************************************************************************/
+	@Override
+	public Set<Map.Entry<Integer, Integer>> entrySet() {
+		return new AbstractSet<Map.Entry<Integer, Integer>>() {
+			@Override
+			public Iterator<Map.Entry<Integer, Integer>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/*****************************************************************************
+	 * Iterates the pages in the order of their numbers and the addresses in
+	 * the order of their offsets
+	 *****************************************************************************/
+	private class EntryIterator implements Iterator<Map.Entry<Integer, Integer>> {
+		private int[] numbers;
+		private int indexPage = 0;
+		private int offset = -1;
+
+		EntryIterator() {
+			numbers = new int[pages.size()];
+			int i = 0;
+			for (Integer number : pages.keySet())
+				numbers[i++] = number;
+			Arrays.sort(numbers);
+			advance();
+		}
+
+		private void advance() {
+			while(indexPage < numbers.length) {
+				Page page = pages.get(numbers[indexPage]);
+				while(++offset < SIZE_PAGE)
+					if(((page.present[offset >>> 6] >>> offset) & 0x1) == 1)
+						return;
+				indexPage++;
+				offset = -1;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return indexPage < numbers.length;
+		}
+
+		@Override
+		public Map.Entry<Integer, Integer> next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			int address = (numbers[indexPage] << BITS_PAGE) | offset;
+			Integer value = pages.get(numbers[indexPage]).values[offset];
+			advance();
+			return new AbstractMap.SimpleImmutableEntry<Integer, Integer>(address, value);
+		}
+	}
+
+}
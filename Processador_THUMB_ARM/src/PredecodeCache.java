@@ -0,0 +1,303 @@
+/*************************************************************************************
+ * @filename: 		PredecodeCache.java
+ * @description:	Cache of the disassembly of programs, keyed by the contents of their
+ * 					opcodes, so a program is decoded once however many times it is
+ * 					loaded. Shared by all the simulations of the JVM, bounded by the
+ * 					number of instructions kept, and optionally kept on disk, one file
+ * 					per program named by the SHA-256 of the opcodes. In memory the key
+ * 					is a 64-bit hash and the opcodes are compared on a hit, so the
+ * 					SHA-256 (and the security providers) are not loaded by the runs
+ * 					that do not use the disk.
+ * @version:		1.0
+ * @created:  		10/18/2026, 15:48:27
+ * @modified: 		10/18/2026, 15:48:27
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PredecodeCache {
+	private static final int CAPACITY = 1 << 20;		// instructions kept by the shared cache
+	private static final PredecodeCache shared = new PredecodeCache(CAPACITY);
+
+	/*****************************************************************************
+	 * Disassembly of a program and the state left by the decoding, that is
+	 * the initial state of the execution
+	 *****************************************************************************/
+	public static final class Entry {
+		private final int[] opcodes;
+		private final List<String> listDisassembly;
+		private final String strOpcodes;
+		private final int contMemory;
+		private final boolean bl;
+		private final BitSet listBl;		// bl before each instruction
+
+		public Entry(List<Integer> listInstructions, List<String> listDisassembly, int contMemory, boolean bl,
+				BitSet listBl) {
+			opcodes = new int[listInstructions.size()];
+			for(int i = 0; i < opcodes.length; i++)
+				opcodes[i] = listInstructions.get(i);
+			this.listDisassembly = Collections.unmodifiableList(new ArrayList<String>(listDisassembly));
+			StringBuilder str = new StringBuilder();
+			str.append(".thumb\n");
+			for (String disassembly : listDisassembly)
+				str.append("\t" + disassembly + "\n");
+			this.strOpcodes = str.toString();
+			this.contMemory = contMemory;
+			this.bl = bl;
+			this.listBl = (BitSet) listBl.clone();
+		}
+
+		/*****************************************************************************
+		 * Returns true if the entry is the disassembly of the opcodes
+		 *****************************************************************************/
+		public boolean matches(List<Integer> listInstructions) {
+			if(listInstructions.size() != opcodes.length)
+				return false;
+			for(int i = 0; i < opcodes.length; i++)
+				if(listInstructions.get(i) != opcodes[i])
+					return false;
+			return true;
+		}
+
+		public List<String> getListDisassembly() {
+			return listDisassembly;
+		}
+
+		public String getStrOpcodes() {
+			return strOpcodes;
+		}
+
+		public int getContMemory() {
+			return contMemory;
+		}
+
+		public boolean isBl() {
+			return bl;
+		}
+
+		/*****************************************************************************
+		 * Returns the bl state before the instruction i, that is also the state
+		 * after the instruction i - 1. For i == size it is the final state.
+		 *****************************************************************************/
+		public boolean isBlBefore(int i) {
+			return i < listDisassembly.size() ? listBl.get(i) : bl;
+		}
+	}
+
+	private int capacity;
+	private long size = 0;				// instructions in the entries
+	private LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/*****************************************************************************************
+	 * Name: 		PredecodeCache
+	 * Description: Constructor method. capacity is the number of instructions kept, the
+	 * 				least recently used programs are evicted first.
+	 *****************************************************************************************/
+	public PredecodeCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		getShared
+	 * Description: Returns the cache shared by all the simulations
+	 * Return:		PredecodeCache
+	 *****************************************************************************************/
+	public static PredecodeCache getShared() {
+		return shared;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		hash
+	 * Description: Returns the 64-bit FNV-1a hash of the opcodes, the key in memory
+	 * Return:		long
+	 *****************************************************************************************/
+	public static long hash(List<Integer> listInstructions) {
+		long hash = 0xcbf29ce484222325L;
+		for (Integer opcode : listInstructions) {
+			hash = (hash ^ (opcode >>> 8 & 0xFF)) * 0x100000001b3L;
+			hash = (hash ^ (opcode & 0xFF)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		digest
+	 * Description: Returns the SHA-256 of the opcodes in hexadecimal, the name of the file
+	 * 				on disk
+	 * Return:		String
+	 *****************************************************************************************/
+	public static String digest(List<Integer> listInstructions) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (Integer opcode : listInstructions) {
+				digest.update((byte) (opcode >>> 8));
+				digest.update((byte) (int) opcode);
+			}
+			StringBuilder str = new StringBuilder();
+			for (byte b : digest.digest())
+				str.append(String.format("%02x", b));
+			return str.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		get
+	 * Description: Returns the entry of the opcodes, looking in the directory if it is not 
+	 * 				in memory and dir != null. Returns null if it is in none.
+	 * Return:		Entry
+	 *****************************************************************************************/
+	public Entry get(List<Integer> listInstructions, String dir) {
+		long key = hash(listInstructions);
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if(entry != null && !entry.matches(listInstructions))
+			entry = null;
+		if(entry == null && dir != null) {
+			entry = read(Paths.get(dir, digest(listInstructions) + ".txt"), listInstructions);
+			if(entry != null)
+				add(key, entry);
+		}
+		if(entry != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+		return entry;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		put
+	 * Description: Adds the entry of its opcodes, and writes it in the directory if 
+	 * 				dir != null
+	 * Return:		void
+	 *****************************************************************************************/
+	public void put(Entry entry, String dir) {
+		List<Integer> listInstructions = new ArrayList<Integer>();
+		for (int opcode : entry.opcodes)
+			listInstructions.add(opcode);
+		add(hash(listInstructions), entry);
+		if(dir != null)
+			write(Paths.get(dir, digest(listInstructions) + ".txt"), entry);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		add
+	 * Description: Adds the entry in memory, evicting the least recently used entries
+	 * 				while the capacity is exceeded
+	 * Return:		void
+	 *****************************************************************************************/
+	private synchronized void add(long key, Entry entry) {
+		Entry old = entries.put(key, entry);
+		if(old != null)
+			size -= old.listDisassembly.size();
+		size += entry.listDisassembly.size();
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(size > capacity && entries.size() > 1) {
+			size -= iterator.next().listDisassembly.size();
+			iterator.remove();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Reads the entry of the opcodes written by write(). Returns null if the 
+	 * 				file does not exist or can not be read.
+	 * Return:		Entry
+	 *****************************************************************************************/
+	private static Entry read(Path file, List<Integer> listInstructions) {
+		if(!Files.exists(file))
+			return null;
+		try {
+			List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			String[] state = lines.get(0).split(" ");
+			BitSet listBl = new BitSet();
+			for(int i = 0; i < lines.size() - 1; i++)
+				listBl.set(i, state[2].charAt(i) == '1');
+			return new Entry(listInstructions, lines.subList(1, lines.size()), Integer.parseInt(state[0]),
+					Boolean.parseBoolean(state[1]), listBl);
+		}
+		catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the entry in the file: a line with contMemory, bl and the bl
+	 * 				before each instruction, and a line per instruction. The file is renamed
+	 * 				at the end, so other processes never read half of it.
+	 * Return:		void
+	 *****************************************************************************************/
+	private static void write(Path file, Entry entry) {
+		Path temp = null;
+		try {
+			Files.createDirectories(file.getParent());
+			temp = Files.createTempFile(file.getParent(), "decode", ".tmp");
+			List<String> lines = new ArrayList<String>();
+			StringBuilder listBl = new StringBuilder();
+			for(int i = 0; i < entry.listDisassembly.size(); i++)
+				listBl.append(entry.listBl.get(i) ? '1' : '0');
+			lines.add(entry.contMemory + " " + entry.bl + " " + listBl);
+			lines.addAll(entry.listDisassembly);
+			Files.write(temp, lines, StandardCharsets.UTF_8);
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the decode cache: " + e.getMessage());
+			try {
+				if(temp != null)
+					Files.deleteIfExists(temp);
+			}
+			catch (IOException f) {
+			}
+		}
+	}
+
+	public synchronized int getEntries() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		clear
+	 * Description: Discards the entries in memory
+	 * Return:		void
+	 *****************************************************************************************/
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+}
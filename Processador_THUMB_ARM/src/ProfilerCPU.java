@@ -0,0 +1,168 @@
+/*************************************************************************************
+ * @filename: 		ProfilerCPU.java
+ * @description:	Class that counts the executions of each instruction and
+ * 					reports the hot spots of the program.
+ * @version:		1.0
+ * @created:  		10/18/2026, 09:20:11
+ * @modified: 		10/18/2026, 09:20:11
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProfilerCPU {
+	/*****************************************************************************
+	 * Opcode classes, indexed by bits 15-12 of the opcode.
+	 * See table B.5 of the book ARM System Developer’s Guide.
+	 *****************************************************************************/
+	private static final String[] NAME_CLASS = {
+			"Shift by immediate",
+			"ASR immediate, add/subtract",
+			"MOV/CMP immediate",
+			"ADD/SUB immediate",
+			"Data processing, high registers, BX, LDR literal",
+			"Load/store register offset",
+			"Load/store word immediate",
+			"Load/store byte immediate",
+			"Load/store halfword immediate",
+			"Load/store SP relative",
+			"ADD to PC/SP",
+			"Miscellaneous",
+			"Load/store multiple",
+			"Conditional branch, SWI",
+			"Unconditional branch, BLX",
+			"BL/BLX"
+	};
+	private static final int TOP = 10;
+
+	private long[] countPc;			// executions indexed by pc/2
+	private boolean[] leader;		// first instruction of a basic block, indexed by pc/2
+	private long[] countClass = new long[16];
+	private long steps = 0;
+	private int lastPc = -4;
+
+	/*****************************************************************************************
+	 * Name: 		ProfilerCPU
+	 * Description: Constructor method. sizeProgram is the number of opcodes in programMemory
+	 *****************************************************************************************/
+	public ProfilerCPU(int sizeProgram) {
+		countPc = new long[sizeProgram];
+		leader = new boolean[sizeProgram];
+	}
+
+	/*****************************************************************************************
+	 * Name: 		count
+	 * Description: Counts one execution of the opcode fetched at pc. An instruction that is
+	 * 				not reached by falling through from the previous one starts a basic block.
+	 * Return:		void
+	 *****************************************************************************************/
+	public void count(int pc, int opcode) {
+		int i = pc >>> 1;
+		countPc[i]++;
+		countClass[(opcode >>> 12) & 0xF]++;
+		if(pc != lastPc + 2)
+			leader[i] = true;
+		lastPc = pc;
+		steps++;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		isBranch
+	 * Description: Returns true if the opcode may change the flow of the program, so the
+	 * 				next instruction starts a basic block.
+	 * Return:		boolean
+	 *****************************************************************************************/
+	private boolean isBranch(int opcode) {
+		int bits_15_12 = (opcode >>> 12) & 0xF;
+		if(bits_15_12 >= 13)									// B<cond>, SWI, B, BL, BLX
+			return true;
+		if((opcode & 0xFF00) == 0xBD00)							// POP {..., PC}
+			return true;
+		if((opcode & 0xFF00) == 0x4700)							// BX | BLX Rm
+			return true;
+		return (opcode & 0xFF87) == 0x4687;						// MOV PC, Rm
+	}
+
+	/*****************************************************************************************
+	 * Name: 		report
+	 * Description: Returns the report of the hottest instructions, opcode classes and basic
+	 * 				blocks annotated with their disassembly.
+	 * Return:		String
+	 *****************************************************************************************/
+	public String report(List<Integer> listInstructions, List<String> listDisassembly) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                         Profile Hot Spots                         |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append("Instructions executed: " + steps + "\n");
+
+		/**********************************
+		 * Hottest instructions
+		 **********************************/
+		sb.append("\n  Adress        Count        %     Disassembly\n");
+		for (Integer i : hottest(countPc))
+			sb.append(String.format("0x%08x  %10d  %6.2f%%   %s\n", i*2, countPc[i],
+					percent(countPc[i]), listDisassembly.get(i)));
+
+		/**********************************
+		 * Opcode classes
+		 **********************************/
+		sb.append("\n  Class                                                Count        %\n");
+		for (Integer i : hottest(countClass))
+			sb.append(String.format("%-50s %10d  %6.2f%%\n", NAME_CLASS[i], countClass[i],
+					percent(countClass[i])));
+
+		/*************************************************************
+		 * Basic blocks, from each leader up to the next leader or
+		 * up to the instruction after a branch
+		 *************************************************************/
+		long[] countBlock = new long[countPc.length];
+		int[] endBlock = new int[countPc.length];
+		for(int i = 0; i < countPc.length; i++) {
+			if(!leader[i] && !(i > 0 && isBranch(listInstructions.get(i-1))))
+				continue;
+			int j = i;
+			long total = countPc[j];
+			while(j+1 < countPc.length && !leader[j+1] && !isBranch(listInstructions.get(j)))
+				total += countPc[++j];
+			countBlock[i] = total;
+			endBlock[i] = j;
+		}
+		sb.append("\n  Block                        Entries   Instructions        %\n");
+		for (Integer i : hottest(countBlock)) {
+			sb.append(String.format("0x%08x-0x%08x  %10d  %12d  %6.2f%%\n", i*2, endBlock[i]*2,
+					countPc[i], countBlock[i], percent(countBlock[i])));
+			for(int j = i; j <= endBlock[i]; j++)
+				sb.append(String.format("\t0x%08x  %s\n", j*2, listDisassembly.get(j)));
+		}
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		hottest
+	 * Description: Returns the indexes of the TOP largest nonzero counters
+	 * Return:		ArrayList<Integer>
+	 *****************************************************************************************/
+	private ArrayList<Integer> hottest(long[] count) {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		for(int i = 0; i < count.length; i++)
+			if(count[i] > 0)
+				list.add(i);
+		list.sort((a, b) -> Long.compare(count[b], count[a]));
+		return list.size() > TOP ? new ArrayList<Integer>(list.subList(0, TOP)) : list;
+	}
+
+	private double percent(long count) {
+		return steps == 0 ? 0 : 100.0 * count / steps;
+	}
+
+	public long getSteps() {
+		return steps;
+	}
+
+}
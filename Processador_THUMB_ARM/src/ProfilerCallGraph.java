@@ -0,0 +1,199 @@
+/*************************************************************************************
+ * @filename: 		ProfilerCallGraph.java
+ * @description:	Class that keeps a shadow call stack of the program and counts
+ * 					the instructions executed by each function.
+ * @version:		1.0
+ * @created:  		10/18/2026, 10:02:37
+ * @modified: 		10/18/2026, 10:02:37
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProfilerCallGraph {
+	/**************************************************************************
+	 * Call tree. Each node is a path of the call stack, the node 0 is the
+	 * function where the program starts. A child always has a greater index
+	 * than its parent. Children are only looked up when a call happens.
+	 **************************************************************************/
+	private int[] nodeFunction = new int[64];
+	private int[] nodeParent = new int[64];
+	private long[] nodeSelf = new long[64];
+	private long[] nodeCalls = new long[64];
+	private int sizeNodes = 1;
+	private Map<Long, Integer> children = new HashMap<Long, Integer>();
+
+	/**************************************************************************
+	 * Shadow call stack with the node and the return address of each frame
+	 **************************************************************************/
+	private int[] stackNode = new int[64];
+	private int[] stackReturn = new int[64];
+	private int depth = 0;
+
+	private long pending = 0;			// cost of the current node not yet added
+	private String unit;
+
+	/*****************************************************************************************
+	 * Name: 		ProfilerCallGraph
+	 * Description: Constructor method. entry is the address where the program starts and
+	 * 				unit is the unit of the cost counted (instructions or cycles)
+	 *****************************************************************************************/
+	public ProfilerCallGraph(int entry, String unit) {
+		this.unit = unit;
+		nodeFunction[0] = entry;
+		nodeParent[0] = -1;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		count
+	 * Description: Counts the cost of an executed opcode. newPc and lr are the values of the
+	 * 				registers after the execution.
+	 * 				Calls:		BL, BLX (BLorBLX, BL_offset11, BLX_offset10, BLX_Rm)
+	 * 				Returns:	BX LR, POP {..., PC}
+	 * Return:		void
+	 *****************************************************************************************/
+	public void count(int opcode, int newPc, int lr, int cost) {
+		pending += cost;
+		if(((opcode & 0xE000) == 0xE000 && (opcode & 0x1800) != 0) || (opcode & 0xFF87) == 0x4780)
+			call(newPc, lr);
+		else if(opcode == 0x4770 || (opcode & 0xFF00) == 0xBD00)
+			ret(newPc);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		call
+	 * Description: Pushes a frame of the function at address in the shadow call stack
+	 * Return:		void
+	 *****************************************************************************************/
+	private void call(int address, int lr) {
+		int node = flush();
+		Long key = ((long) node << 32) | (address & 0xFFFFFFFFL);
+		Integer child = children.get(key);
+		if(child == null) {
+			child = newNode(address, node);
+			children.put(key, child);
+		}
+		nodeCalls[child]++;
+		if(depth == stackNode.length) {
+			stackNode = Arrays.copyOf(stackNode, depth * 2);
+			stackReturn = Arrays.copyOf(stackReturn, depth * 2);
+		}
+		stackNode[depth] = child;
+		stackReturn[depth] = lr & 0xFFFFFFFE;
+		depth++;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		ret
+	 * Description: Pops the frames of the shadow call stack up to the one that returns to
+	 * 				address. If no frame returns to address, only the top frame is popped.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void ret(int address) {
+		flush();
+		int i = depth - 1;
+		while(i >= 0 && stackReturn[i] != (address & 0xFFFFFFFE))
+			i--;
+		if(i >= 0)
+			depth = i;
+		else if(depth > 0)
+			depth--;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flush
+	 * Description: Adds the pending instructions to the current node and returns it
+	 * Return:		int
+	 *****************************************************************************************/
+	private int flush() {
+		int node = depth == 0 ? 0 : stackNode[depth-1];
+		nodeSelf[node] += pending;
+		pending = 0;
+		return node;
+	}
+
+	private int newNode(int function, int parent) {
+		if(sizeNodes == nodeFunction.length) {
+			nodeFunction = Arrays.copyOf(nodeFunction, sizeNodes * 2);
+			nodeParent = Arrays.copyOf(nodeParent, sizeNodes * 2);
+			nodeSelf = Arrays.copyOf(nodeSelf, sizeNodes * 2);
+			nodeCalls = Arrays.copyOf(nodeCalls, sizeNodes * 2);
+		}
+		nodeFunction[sizeNodes] = function;
+		nodeParent[sizeNodes] = parent;
+		return sizeNodes++;
+	}
+
+	private String nameFunction(int address) {
+		return String.format("0x%08x", address);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		folded
+	 * Description: Returns the call stacks in the folded format used by flame graphs,
+	 * 				one line per stack: "caller;callee count"
+	 * Return:		String
+	 *****************************************************************************************/
+	public String folded() {
+		flush();
+		StringBuilder sb = new StringBuilder();
+		for(int node = 0; node < sizeNodes; node++) {
+			if(nodeSelf[node] == 0)
+				continue;
+			ArrayList<String> path = new ArrayList<String>();
+			for(int n = node; n != -1; n = nodeParent[n])
+				path.add(0, nameFunction(nodeFunction[n]));
+			sb.append(String.join(";", path) + " " + nodeSelf[node] + "\n");
+		}
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		report
+	 * Description: Returns the inclusive and exclusive costs of each function.
+	 * 				In recursive calls, the inclusive count is only taken at the outermost
+	 * 				frame of the function.
+	 * Return:		String
+	 *****************************************************************************************/
+	public String report() {
+		flush();
+		long[] total = Arrays.copyOf(nodeSelf, sizeNodes);
+		for(int node = sizeNodes - 1; node > 0; node--)
+			total[nodeParent[node]] += total[node];
+
+		Map<Integer, long[]> functions = new TreeMap<Integer, long[]>();
+		for(int node = 0; node < sizeNodes; node++) {
+			long[] count = functions.computeIfAbsent(nodeFunction[node], k -> new long[3]);
+			count[1] += nodeSelf[node];
+			count[2] += nodeCalls[node];
+			boolean outermost = true;
+			for(int n = nodeParent[node]; n != -1 && outermost; n = nodeParent[n])
+				outermost = nodeFunction[n] != nodeFunction[node];
+			if(outermost)
+				count[0] += total[node];
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append(  "|                            Call Graph                             |");
+		sb.append("\n---------------------------------------------------------------------\n");
+		sb.append("Unit: " + unit + "\n");
+		sb.append(String.format("%-12s %12s %12s %12s %8s\n", "Function", "Inclusive", "Exclusive",
+				"Calls", "%"));
+		for (Map.Entry<Integer, long[]> entry : functions.entrySet()) {
+			long[] count = entry.getValue();
+			sb.append(String.format("%-12s %12d %12d %12d %7.2f%%\n", nameFunction(entry.getKey()),
+					count[0], count[1], count[2], total[0] == 0 ? 0 : 100.0 * count[0] / total[0]));
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,297 @@
+/*************************************************************************************
+ * @filename: 		SemihostingCPU.java
+ * @description:	Semihosting of the ARM: a SWI or a BKPT with the number 0xAB asks
+ * 					a service of the host, with the operation in R0 and its argument
+ * 					in R1 (a value or the address of a block of words), and the
+ * 					result is returned in R0. The output of the program is kept in
+ * 					buffers of the host, written when they are full, before reading
+ * 					the input and at the end of each run, not at each character.
+ *
+ * 					Operations:
+ * 					SYS_OPEN   (0x01)	block {name, mode, length}: ":tt" is the standard
+ * 										input (mode 0-3) or output (mode 4-11), other
+ * 										names are files written in arquivos/output/
+ * 										semihost_<name> (mode 4-11). Returns the
+ * 										handle or -1.
+ * 					SYS_CLOSE  (0x02)	block {handle}. Returns 0 or -1.
+ * 					SYS_WRITEC (0x03)	R1 = address of the character
+ * 					SYS_WRITE0 (0x04)	R1 = address of a string ended by 0
+ * 					SYS_WRITE  (0x05)	block {handle, buffer, length}. Returns the
+ * 										number of bytes not written.
+ * 					SYS_READ   (0x06)	block {handle, buffer, length}, only the standard
+ * 										input. Returns the number of bytes not read.
+ * 					SYS_READC  (0x07)	Returns a character of the standard input.
+ * 					SYS_CLOCK  (0x10)	Returns the centiseconds since the start of the run.
+ * 					SYS_TIME   (0x11)	Returns the seconds since 01/01/1970.
+ * 					SYS_EXIT   (0x18)	R1 = reason, ends the run with the exit code 0 if
+ * 										the reason is ADP_Stopped_ApplicationExit
+ * 										(0x20026), else 1.
+ * 					SYS_EXIT_EXTENDED (0x20)	block {reason, code}, the same with the code.
+ * @version:		1.0
+ * @created:  		10/18/2026, 22:52:03
+ * @modified: 		10/18/2026, 22:52:03
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+public class SemihostingCPU {
+	public static final int NUMBER = 0xAB;					// of the SWI and the BKPT
+	public static final int SYS_OPEN = 0x01;
+	public static final int SYS_CLOSE = 0x02;
+	public static final int SYS_WRITEC = 0x03;
+	public static final int SYS_WRITE0 = 0x04;
+	public static final int SYS_WRITE = 0x05;
+	public static final int SYS_READ = 0x06;
+	public static final int SYS_READC = 0x07;
+	public static final int SYS_CLOCK = 0x10;
+	public static final int SYS_TIME = 0x11;
+	public static final int SYS_EXIT = 0x18;
+	public static final int SYS_EXIT_EXTENDED = 0x20;
+	public static final int APPLICATION_EXIT = 0x20026;		// ADP_Stopped_ApplicationExit
+	private static final int STDIN = 0;
+	private static final int STDOUT = 1;
+	private static final int MAX_STRING = 1 << 16;			// bytes of a SYS_WRITE0
+
+	private OutputStream stdout = new BufferedOutputStream(System.out, 1 << 13);
+	private InputStream stdin = System.in;
+	private HashMap<Integer, OutputStream> files = new HashMap<Integer, OutputStream>();
+	private int nextHandle = 2;
+	private boolean exited = false;
+	private int exitCode = 0;
+	private long start = System.nanoTime();
+	private long countCalls = 0;
+	private long countBytes = 0;
+
+	/*****************************************************************************************
+	 * Name: 		call
+	 * Description: Runs the operation of R0 of the CPU and returns the result for R0
+	 * Return:		int
+	 *****************************************************************************************/
+	public int call(OperationsCPU cpu) {
+		int argument = cpu.reg[1];
+		countCalls++;
+		try {
+			switch (cpu.reg[0]) {
+			case SYS_OPEN:
+				return open(string(cpu, word(cpu, argument), word(cpu, argument + 8)), word(cpu, argument + 4));
+			case SYS_CLOSE:
+				return close(word(cpu, argument));
+			case SYS_WRITEC:
+				stdout.write(data(cpu, argument));
+				countBytes++;
+				return 0;
+			case SYS_WRITE0:
+				for(int i = 0; i < MAX_STRING; i++) {
+					int c = data(cpu, argument + i);
+					if(c == 0)
+						break;
+					stdout.write(c);
+					countBytes++;
+				}
+				return 0;
+			case SYS_WRITE:
+				return write(cpu, word(cpu, argument), word(cpu, argument + 4), word(cpu, argument + 8));
+			case SYS_READ:
+				return read(cpu, word(cpu, argument), word(cpu, argument + 4), word(cpu, argument + 8));
+			case SYS_READC:
+				stdout.flush();
+				return stdin.read();
+			case SYS_CLOCK:
+				return (int) ((System.nanoTime() - start) / 10000000);
+			case SYS_TIME:
+				return (int) (System.currentTimeMillis() / 1000);
+			case SYS_EXIT:
+				exit(argument == APPLICATION_EXIT ? 0 : 1);
+				return 0;
+			case SYS_EXIT_EXTENDED:
+				exit(word(cpu, argument) == APPLICATION_EXIT ? word(cpu, argument + 4) : 1);
+				return 0;
+			default:
+				return -1;
+			}
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem with the semihosting: " + e.getMessage());
+			return -1;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		word
+	 * Description: Reads a word of the memory of the CPU
+	 * Return:		int
+	 *****************************************************************************************/
+	private static int word(OperationsCPU cpu, int address) {
+		return cpu.loadMemory(address, OperationsCPU.dataType.Int, OperationsCPU.signType.unsigned);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		data
+	 * Description: Reads a byte of the memory of the CPU
+	 * Return:		int
+	 *****************************************************************************************/
+	private static int data(OperationsCPU cpu, int address) {
+		return cpu.loadMemory(address, OperationsCPU.dataType.Byte, OperationsCPU.signType.unsigned);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		string
+	 * Description: Reads length bytes of the memory of the CPU as a string
+	 * Return:		String
+	 *****************************************************************************************/
+	private static String string(OperationsCPU cpu, int address, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < Math.min(length, MAX_STRING); i++)
+			sb.append((char) data(cpu, address + i));
+		return sb.toString();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		open
+	 * Description: Opens the standard input or output (":tt") or a file to be written, in
+	 * 				arquivos/output/semihost_<name>. Returns the handle or -1.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int open(String name, int mode) throws IOException {
+		if(name.equals(":tt"))
+			return mode < 4 ? STDIN : STDOUT;
+		if(mode < 4 || mode > 11)
+			return -1;
+		String file = "arquivos/output/semihost_" + Paths.get(name).getFileName();
+		files.put(nextHandle, new BufferedOutputStream(new FileOutputStream(file, mode >= 8), 1 << 13));
+		return nextHandle++;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		close
+	 * Description: Closes a file opened by SYS_OPEN. Returns 0 or -1.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int close(int handle) throws IOException {
+		if(handle == STDIN || handle == STDOUT)
+			return 0;
+		OutputStream file = files.remove(handle);
+		if(file == null)
+			return -1;
+		file.close();
+		return 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes length bytes of the memory from the address to the handle. Returns
+	 * 				the number of bytes not written.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int write(OperationsCPU cpu, int handle, int address, int length) throws IOException {
+		OutputStream out = handle == STDOUT ? stdout : files.get(handle);
+		if(out == null)
+			return length;
+		for(int i = 0; i < length; i++)
+			out.write(data(cpu, address + i));
+		countBytes += length;
+		return 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Reads up to length bytes of the standard input to the memory from the
+	 * 				address. Returns the number of bytes not read.
+	 * Return:		int
+	 *****************************************************************************************/
+	private int read(OperationsCPU cpu, int handle, int address, int length) throws IOException {
+		if(handle != STDIN)
+			return -1;
+		stdout.flush();
+		byte[] buffer = new byte[Math.max(0, Math.min(length, MAX_STRING))];
+		int n = Math.max(0, stdin.read(buffer));
+		for(int i = 0; i < n; i++)
+			cpu.storeMemory(address + i, buffer[i] & 0xFF, OperationsCPU.dataType.Byte);
+		return length - n;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		exit
+	 * Description: Ends the run with the exit code, see isExited()
+	 * Return:		void
+	 *****************************************************************************************/
+	private void exit(int code) {
+		exited = true;
+		exitCode = code;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		flush
+	 * Description: Writes the buffers of the standard output and of the files
+	 * Return:		void
+	 *****************************************************************************************/
+	public void flush() {
+		try {
+			stdout.flush();
+			for (OutputStream file : files.values())
+				file.flush();
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem with the semihosting: " + e.getMessage());
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		reset
+	 * Description: Closes the files and clears the exit, for a new run
+	 * Return:		void
+	 *****************************************************************************************/
+	public void reset() {
+		flush();
+		for (OutputStream file : files.values()) {
+			try {
+				file.close();
+			}
+			catch (IOException e) {
+				System.out.println("There was a problem with the semihosting: " + e.getMessage());
+			}
+		}
+		files.clear();
+		nextHandle = 2;
+		exited = false;
+		exitCode = 0;
+		start = System.nanoTime();
+		countCalls = countBytes = 0;
+	}
+
+	public boolean isExited() {
+		return exited;
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		show
+	 * Description: Shows the calls, the bytes written and the exit of the run
+	 * Return:		String
+	 *****************************************************************************************/
+	public String show() {
+		String
+		str  = "\n---------------------------------------------------------------------\n";
+		str +=   "|                            Semihosting                            |";
+		str += "\n---------------------------------------------------------------------\n";
+		str += String.format("Calls:         %d\n", countCalls);
+		str += String.format("Bytes written: %d\n", countBytes);
+		str += exited ? String.format("Exit code:     %d", exitCode) : "Exit code:     none";
+		return str;
+	}
+
+}
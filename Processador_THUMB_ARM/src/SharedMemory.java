@@ -0,0 +1,169 @@
+/*************************************************************************************
+ * @filename: 		SharedMemory.java
+ * @description:	Memory shared by the cores of a multi-core simulation, each core
+ * 					running on its own thread. The pages are kept in a concurrent map
+ * 					and each page is its own lock, so the accesses to different pages
+ * 					do not wait for each other (striped locks, one stripe by page).
+ * 					Each read or write of an address is atomic and, as all of them are
+ * 					done holding the lock of the page, the memory is sequentially
+ * 					consistent: the cores see the writes in the same order, the order
+ * 					of the program of each core is kept.
+ *
+ * 					It is only a map of the addresses, not a PagedMemory: it can not
+ * 					be marked, reset, checkpointed or reverted, and fork() returns a
+ * 					copy of the contents in a PagedMemory. The cores reach it through
+ * 					OperationsCPU.sharedMemory, their dataMemory stays a PagedMemory.
+ * @version:		1.0
+ * @created:  		10/18/2026, 20:31:07
+ * @modified: 		10/18/2026, 20:31:07
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedMemory extends AbstractMap<Integer, Integer> {
+	private static final int BITS_PAGE = PagedMemory.BITS_PAGE;
+	private static final int SIZE_PAGE = PagedMemory.SIZE_PAGE;
+
+	private ConcurrentHashMap<Integer, PagedMemory.Page> shared = new ConcurrentHashMap<Integer, PagedMemory.Page>();
+	private AtomicInteger count = new AtomicInteger(0);
+
+	public SharedMemory() {
+	}
+
+	@Override
+	public Integer get(Object key) {
+		if(!(key instanceof Integer))
+			return null;
+		int address = (Integer) key;
+		PagedMemory.Page page = shared.get(address >> BITS_PAGE);
+		if(page == null)
+			return null;
+		int offset = address & (SIZE_PAGE - 1);
+		synchronized (page) {
+			if(((page.present[offset >>> 6] >>> offset) & 0x1) == 0)
+				return null;
+			return page.values[offset];
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public Integer put(Integer key, Integer value) {
+		return write(key, value, true);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		putIfAbsent
+	 * Description: Writes the value if the address is not in the memory, in one atomic step,
+	 * 				and returns the previous value
+	 * Return:		Integer
+	 *****************************************************************************************/
+	@Override
+	public Integer putIfAbsent(Integer key, Integer value) {
+		return write(key, value, false);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the value at the address holding the lock of its page, only if the
+	 * 				address is not in the memory when replace == false. Returns the previous
+	 * 				value, or null.
+	 * Return:		Integer
+	 *****************************************************************************************/
+	private Integer write(int address, int value, boolean replace) {
+		PagedMemory.Page page = shared.computeIfAbsent(address >> BITS_PAGE, number -> new PagedMemory.Page());
+		int offset = address & (SIZE_PAGE - 1);
+		synchronized (page) {
+			Integer old = null;
+			if(((page.present[offset >>> 6] >>> offset) & 0x1) == 1) {
+				old = page.values[offset];
+				if(!replace)
+					return old;
+			}
+			else {
+				page.present[offset >>> 6] |= 1L << offset;
+				page.size++;
+				count.incrementAndGet();
+			}
+			page.values[offset] = value;
+			return old;
+		}
+	}
+
+	@Override
+	public Integer remove(Object key) {
+		if(!(key instanceof Integer))
+			return null;
+		int address = (Integer) key;
+		PagedMemory.Page page = shared.get(address >> BITS_PAGE);
+		if(page == null)
+			return null;
+		int offset = address & (SIZE_PAGE - 1);
+		synchronized (page) {
+			if(((page.present[offset >>> 6] >>> offset) & 0x1) == 0)
+				return null;
+			page.present[offset >>> 6] &= ~(1L << offset);
+			page.size--;
+			count.decrementAndGet();
+			return page.values[offset];
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		clear
+	 * Description: Removes all the addresses. Must not be called while the cores are running.
+	 * Return:		void
+	 *****************************************************************************************/
+	@Override
+	public void clear() {
+		shared.clear();
+		count.set(0);
+	}
+
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		fork
+	 * Description: Returns a copy of the contents, each page copied holding its lock
+	 * Return:		PagedMemory
+	 *****************************************************************************************/
+	public PagedMemory fork() {
+		PagedMemory memory = new PagedMemory();
+		for (Map.Entry<Integer, PagedMemory.Page> entry : shared.entrySet()) {
+			PagedMemory.Page page = entry.getValue();
+			synchronized (page) {
+				for(int offset = 0; offset < SIZE_PAGE; offset++)
+					if(((page.present[offset >>> 6] >>> offset) & 0x1) == 1)
+						memory.put((entry.getKey() << BITS_PAGE) | offset, page.values[offset]);
+			}
+		}
+		return memory;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		entrySet
+	 * Description: Returns the entries sorted by address, of a copy of the contents
+	 * Return:		Set<Map.Entry<Integer, Integer>>
+	 *****************************************************************************************/
+	@Override
+	public Set<Map.Entry<Integer, Integer>> entrySet() {
+		return fork().entrySet();
+	}
+
+}
@@ -0,0 +1,169 @@
+/*************************************************************************************
+ * @filename: 		SimulationServer.java
+ * @description:	Server that keeps the simulator loaded in a running JVM and runs
+ * 					the programs sent by its clients, so each run does not pay the
+ * 					start of a new JVM. Listens on a loopback TCP port or on a Unix
+ * 					domain socket, and each connection is handled by its own thread.
+ *
+ * 					Protocol (text, UTF-8), any number of requests per connection:
+ * 					request:	RUN [options]		e.g. "RUN -timing m0 -steps 5000"
+ * 								<lines of the program, as in the input files>
+ * 								END
+ * 					response:	OK <steps> <failed>
+ * 								<output of the run, as in the output files>
+ * 								END
+ * 					or			ERROR <message>
+ * 								END
+ * 					PING is answered with PONG.
+ * @version:		1.0
+ * @created:  		10/18/2026, 17:40:19
+ * @modified: 		10/18/2026, 17:40:19
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SimulationServer {
+	private static final int MAX_LINES = 1 << 16;		// lines of a program
+
+	private String address;
+	private ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "simulation-client");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*****************************************************************************************
+	 * Name: 		SimulationServer
+	 * Description: Constructor method. address is a TCP port of the loopback interface or
+	 * 				the path of a Unix domain socket.
+	 *****************************************************************************************/
+	public SimulationServer(String address) {
+		this.address = address;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Accepts the connections until the thread is interrupted
+	 * Return:		void
+	 *****************************************************************************************/
+	public void run() throws IOException {
+		try (ServerSocketChannel server = open()) {
+			System.out.println("Listening on " + server.getLocalAddress());
+			while(!Thread.currentThread().isInterrupted()) {
+				SocketChannel client = server.accept();
+				executor.execute(() -> handle(client));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		open
+	 * Description: Opens the server socket of the address
+	 * Return:		ServerSocketChannel
+	 *****************************************************************************************/
+	private ServerSocketChannel open() throws IOException {
+		if(address.matches("\\d+"))
+			return ServerSocketChannel.open().bind(
+					new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+		Path path = Paths.get(address);
+		Files.deleteIfExists(path);
+		return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(path));
+	}
+
+	/*****************************************************************************************
+	 * Name: 		handle
+	 * Description: Answers the requests of a connection until the client closes it
+	 * Return:		void
+	 *****************************************************************************************/
+	private void handle(SocketChannel client) {
+		try (
+				SocketChannel channel = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						Channels.newInputStream(channel), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(
+						Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+			)
+		{
+			String line;
+			while((line = in.readLine()) != null) {
+				if(line.equals("PING"))
+					out.print("PONG\n");
+				else if(line.equals("RUN") || line.startsWith("RUN "))
+					out.print(request(line.substring(3).trim(), in));
+				else if(!line.isBlank())
+					out.print("ERROR Unknown command: " + line + "\nEND\n");
+				out.flush();
+			}
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem with a client: " + e.getMessage());
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		request
+	 * Description: Reads the program of a RUN request, runs it with the options and returns
+	 * 				the response. Only the options -timing, -flight and -steps are used, the
+	 * 				options that write files are ignored.
+	 * Return:		String
+	 *****************************************************************************************/
+	private String request(String strOptions, BufferedReader in) throws IOException {
+		StringBuilder image = new StringBuilder();
+		int lines = 0;
+		String line;
+		while((line = in.readLine()) != null && !line.equals("END"))
+			if(!line.isBlank() && lines++ < MAX_LINES)
+				image.append(line).append("\n");
+		try {
+			if(lines == 0)
+				throw new IllegalArgumentException("Empty program");
+			if(lines > MAX_LINES)
+				throw new IllegalArgumentException("Program larger than " + MAX_LINES + " lines");
+			OptionsCPU parsed = new OptionsCPU();
+			String[] args = strOptions.isEmpty() ? new String[0] : strOptions.split("\\s+");
+			for(int i = 0; i < args.length; ) {
+				int n = parsed.parseOption(args, i);
+				if(n == 0)
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+				i += n;
+			}
+			OptionsCPU options = new OptionsCPU();
+			options.setTiming(parsed.getTiming());
+			options.setFlight(parsed.getFlight());
+			options.setMaxSteps(parsed.getMaxSteps());
+			ThumbInstructions thumbInstructions = ThumbInstructions.loadImage("request", image.toString(), options);
+			thumbInstructions.run();
+			return "OK " + thumbInstructions.getSteps() + " " + thumbInstructions.isFailed() + "\n"
+					+ thumbInstructions.showOutput() + "END\n";
+		}
+		catch (RuntimeException e) {
+			return "ERROR " + (e instanceof IllegalArgumentException ? e.getMessage() : e.toString()) + "\nEND\n";
+		}
+	}
+
+}
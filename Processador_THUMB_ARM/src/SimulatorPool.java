@@ -0,0 +1,72 @@
+/*************************************************************************************
+ * @filename: 		SimulatorPool.java
+ * @description:	Pool of simulations ready to run, one list per input file. A
+ * 					released simulation is reset() and kept to be reused by the next
+ * 					run of the same program, so the program is not loaded and decoded
+ * 					again and only the pages written by the last run are reverted.
+ * @version:		1.0
+ * @created:  		10/18/2026, 14:31:40
+ * @modified: 		10/18/2026, 14:31:40
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+public class SimulatorPool {
+	private OptionsCPU options;
+	private int capacity;			// idle simulations kept per file
+	private ConcurrentHashMap<String, BlockingDeque<ThumbInstructions>> idle =
+			new ConcurrentHashMap<String, BlockingDeque<ThumbInstructions>>();
+
+	/*****************************************************************************************
+	 * Name: 		SimulatorPool
+	 * Description: Constructor method. The simulations are loaded with the options.
+	 *****************************************************************************************/
+	public SimulatorPool(OptionsCPU options, int capacity) throws IllegalArgumentException {
+		if(capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity of the pool: " + capacity);
+		this.options = options;
+		this.capacity = capacity;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		acquire
+	 * Description: Returns a simulation of the program in the file at its initial state,
+	 * 				reusing an idle one if there is any
+	 * Return:		ThumbInstructions
+	 *****************************************************************************************/
+	public ThumbInstructions acquire(String file) {
+		BlockingDeque<ThumbInstructions> deque = idle.get(file);
+		ThumbInstructions simulation = deque != null ? deque.pollFirst() : null;
+		return simulation != null ? simulation : ThumbInstructions.load(file, options);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		release
+	 * Description: Returns the simulation to the pool. It is reset() here, so the next
+	 * 				acquire() does not wait for it. Simulations beyond the capacity are
+	 * 				discarded.
+	 * Return:		void
+	 *****************************************************************************************/
+	public void release(ThumbInstructions simulation) {
+		simulation.reset();
+		idle.computeIfAbsent(simulation.getStrFile(),
+				k -> new LinkedBlockingDeque<ThumbInstructions>(capacity)).offerFirst(simulation);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		clear
+	 * Description: Discards the idle simulations of the file, e.g. after it was changed
+	 * Return:		void
+	 *****************************************************************************************/
+	public void clear(String file) {
+		idle.remove(file);
+	}
+
+}
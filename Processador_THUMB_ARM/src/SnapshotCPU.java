@@ -0,0 +1,174 @@
+/*************************************************************************************
+ * @filename: 		SnapshotCPU.java
+ * @description:	Immutable copy of the state of a simulation: registers, memories
+ * 					and the pending bl/attPc state. Can be kept in memory or written
+ * 					to a compact binary file.
+ *
+ * 					Format (big-endian):
+ * 					"THSN" <version-2b> <R0..R15-4b each> <cpsr-4b> <contMemory-4b>
+ * 					<bl-1b> <attPc-1b> <steps-4b> <cycles-8b>
+ * 					and for programMemory, dataMemory and stackMemory:
+ * 					<size-4b> <address-4b, value-4b for each entry>
+ * @version:		1.0
+ * @created:  		10/18/2026, 13:10:22
+ * @modified: 		10/18/2026, 13:10:22
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class SnapshotCPU {
+	private static final int MAGIC = 0x5448534E;		// "THSN"
+	private static final short VERSION = 1;
+
+	private final int[] reg;
+	private final int regCPSR;
+	private final Map<Integer, Integer> programMemory;
+	private final Map<Integer, Integer> dataMemory;
+	private final Map<Integer, Integer> stackMemory;
+	private final int contMemory;
+	private final boolean bl;
+	private final boolean attPc;
+	private final int steps;
+	private final long cycles;
+
+	/*****************************************************************************************
+	 * Name: 		SnapshotCPU
+	 * Description: Constructor method. Copies the registers and the memories.
+	 *****************************************************************************************/
+	public SnapshotCPU(int[] reg, int regCPSR, Map<Integer, Integer> programMemory,
+			Map<Integer, Integer> dataMemory, Map<Integer, Integer> stackMemory, int contMemory,
+			boolean bl, boolean attPc, int steps, long cycles) {
+		this.reg = reg.clone();
+		this.regCPSR = regCPSR;
+		this.programMemory = Collections.unmodifiableMap(new TreeMap<Integer, Integer>(programMemory));
+		this.dataMemory = Collections.unmodifiableMap(new TreeMap<Integer, Integer>(dataMemory));
+		this.stackMemory = Collections.unmodifiableMap(new TreeMap<Integer, Integer>(stackMemory));
+		this.contMemory = contMemory;
+		this.bl = bl;
+		this.attPc = attPc;
+		this.steps = steps;
+		this.cycles = cycles;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Writes the snapshot in the file
+	 * Return:		void
+	 *****************************************************************************************/
+	public void write(String file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			for(int i = 0; i < 16; i++)
+				out.writeInt(reg[i]);
+			out.writeInt(regCPSR);
+			out.writeInt(contMemory);
+			out.writeBoolean(bl);
+			out.writeBoolean(attPc);
+			out.writeInt(steps);
+			out.writeLong(cycles);
+			writeMemory(out, programMemory);
+			writeMemory(out, dataMemory);
+			writeMemory(out, stackMemory);
+		}
+	}
+
+	private static void writeMemory(DataOutputStream out, Map<Integer, Integer> memory) throws IOException {
+		out.writeInt(memory.size());
+		for (Map.Entry<Integer, Integer> entry : memory.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		read
+	 * Description: Reads a snapshot written by write()
+	 * Return:		SnapshotCPU
+	 *****************************************************************************************/
+	public static SnapshotCPU read(String file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readShort() != VERSION)
+				throw new IOException("Not a snapshot file: " + file);
+			int[] reg = new int[16];
+			for(int i = 0; i < 16; i++)
+				reg[i] = in.readInt();
+			int regCPSR = in.readInt();
+			int contMemory = in.readInt();
+			boolean bl = in.readBoolean();
+			boolean attPc = in.readBoolean();
+			int steps = in.readInt();
+			long cycles = in.readLong();
+			Map<Integer, Integer> programMemory = readMemory(in);
+			Map<Integer, Integer> dataMemory = readMemory(in);
+			Map<Integer, Integer> stackMemory = readMemory(in);
+			return new SnapshotCPU(reg, regCPSR, programMemory, dataMemory, stackMemory, contMemory,
+					bl, attPc, steps, cycles);
+		}
+	}
+
+	private static Map<Integer, Integer> readMemory(DataInputStream in) throws IOException {
+		Map<Integer, Integer> memory = new TreeMap<Integer, Integer>();
+		int size = in.readInt();
+		for(int i = 0; i < size; i++)
+			memory.put(in.readInt(), in.readInt());
+		return memory;
+	}
+
+	public int[] getReg() {
+		return reg.clone();
+	}
+
+	public int getRegCPSR() {
+		return regCPSR;
+	}
+
+	public Map<Integer, Integer> getProgramMemory() {
+		return programMemory;
+	}
+
+	public Map<Integer, Integer> getDataMemory() {
+		return dataMemory;
+	}
+
+	public Map<Integer, Integer> getStackMemory() {
+		return stackMemory;
+	}
+
+	public int getContMemory() {
+		return contMemory;
+	}
+
+	public boolean isBl() {
+		return bl;
+	}
+
+	public boolean isAttPc() {
+		return attPc;
+	}
+
+	public int getSteps() {
+		return steps;
+	}
+
+	public long getCycles() {
+		return cycles;
+	}
+
+}
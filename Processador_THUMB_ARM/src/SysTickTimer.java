@@ -0,0 +1,55 @@
+/*************************************************************************************
+ * @filename: 		SysTickTimer.java
+ * @description:	Timer in the style of the SysTick of the Cortex-M. Raises the
+ * 					interrupt EventScheduler.SYSTICK at each period, counted from the
+ * 					last expiration, so the interrupts do not drift when an
+ * 					instruction takes more than one cycle.
+ * @version:		1.0
+ * @created:  		10/18/2026, 21:26:12
+ * @modified: 		10/18/2026, 21:26:12
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+public class SysTickTimer {
+	private EventScheduler scheduler;
+	private long period;
+	private long next;					// time of the next expiration
+
+	/*****************************************************************************************
+	 * Name: 		SysTickTimer
+	 * Description: Constructor method. Adds the timer to the scheduler with the handler of
+	 * 				the interrupt.
+	 *****************************************************************************************/
+	public SysTickTimer(EventScheduler scheduler, long period, int handler) {
+		this.scheduler = scheduler;
+		this.period = period;
+		scheduler.setHandler(EventScheduler.SYSTICK, handler);
+		scheduler.addDevice(this::start);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		start
+	 * Description: Schedules the first expiration, one period after the current time
+	 * Return:		void
+	 *****************************************************************************************/
+	private void start() {
+		next = scheduler.getTime() + period;
+		scheduler.schedule(next, this::expire);
+	}
+
+	/*****************************************************************************************
+	 * Name: 		expire
+	 * Description: Raises the interrupt and schedules the next expiration
+	 * Return:		void
+	 *****************************************************************************************/
+	private void expire() {
+		scheduler.raise(EventScheduler.SYSTICK);
+		next += period;
+		scheduler.schedule(next, this::expire);
+	}
+
+}
@@ -1,7 +1,7 @@
 /*************************************************************************************
  * @filename: 		ServicesInstructions.java
  * @description:	Class that contains the methods to be called in the application.
- * 					Extends OperationsInstructions.
+ * 					Extends DecodeInstructions.
  * @version:		1.0
  * @created:  ‎		12/29/2022, 10:25:42
  * @modified: ‎		01/05/‎2023, ‏‎‏‎11:49:02
@@ -18,14 +18,48 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 
-public class ThumbInstructions extends OperationsInstructions {
+public class ThumbInstructions extends DecodeInstructions {
 	private String strFile;
+	private String image;
 	private String strOpcodes;
+	private OptionsCPU options;
+	private ArrayList<Integer> listInstructions;
+	private List<String> listDisassembly;
+	private ArrayList<String> listLines = new ArrayList<String>();
+	private PredecodeCache.Entry entry;
+	private int countDecoded = 0;
+	private ProfilerCPU profiler;
+	private ProfilerCallGraph callGraph;
+	private TimingModel timing;
+	private TraceCPU trace;
+	private FlightRecorderCPU flight;
+	private CheckpointCPU checkpoint;
+	private EventScheduler scheduler;
+	private String output;
+	private boolean failed = false;
+	private boolean verbose = true;
+	private int steps = 0;
+	private long cycles = 0;
+	
+	/************************************************************************
+	 * State saved by mark() and restored by reset()
+	 ************************************************************************/
+	private int[] initialReg = new int[16];
+	private int initialCPSR;
+	private int initialContMemory;
+	private boolean initialBl;
+	private boolean initialAttPc;
+	private int initialSteps;
+	private long initialCycles;
 	
 	/*****************************************************************************************
 	 * Name: 		decodeOperationsCPU
@@ -35,41 +69,594 @@ public class ThumbInstructions extends OperationsInstructions {
 	 * Return:		void	
 	 *****************************************************************************************/
 	public ThumbInstructions(String strF) throws NullPointerException {
+		this(strF, new OptionsCPU());
+	}
+	
+	public ThumbInstructions(String strF, OptionsCPU opt) throws NullPointerException {
+		this(strF, null, opt, null, true);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		ThumbInstructions
+	 * Description: Constructor method for a new version of the file of previous. Only the 
+	 * 				lines and the instructions changed since previous are decoded again.
+	 *****************************************************************************************/
+	public ThumbInstructions(String strF, OptionsCPU opt, ThumbInstructions previous) throws NullPointerException {
+		this(strF, null, opt, previous, true);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		ThumbInstructions
+	 * Description: Constructor method. Loads the program, reusing the decoding of previous 
+	 * 				if it is not null, and, if execute == true, runs it and writes the outputs.
+	 *****************************************************************************************/
+	private ThumbInstructions(String strF, String img, OptionsCPU opt, ThumbInstructions previous, 
+			boolean execute) throws NullPointerException {
 		strFile = strF;
-		decodeOpcodes();
+		image = img;
+		options = opt;
+		decodeOpcodes(previous);
 		modeCPU = true;
-		int rep = 0;
-		while(rep < 10000) {
-			try {
-				new DecodeInstructions(programMemory.get(reg[15]));
-				rep++;
-			} 
-			catch (NullPointerException e) {
-				String str = "At pc="
-						+ String.format("0x%08x", reg[15])
-						+ " Instruction fetched from a location outside of a code section (.text or .exceptions).";
-				System.out.println(str);
+		if(options.getRestoreFile() != null)
+			restoreFile(options.getRestoreFile());
+		if(options.getResumeFile() != null)
+			resumeFile(options.getResumeFile());
+		if(!execute) {
+			verbose = false;
+			if(options.getTiming() != null)
+				timing = TimingModel.forName(options.getTiming());
+			if(options.getSysTick() != null)
+				scheduler = EventScheduler.forSpec(options.getSysTick(), now());
+			bus = MemoryBus.forOptions(options, this::now);
+			if(options.isSemihosting())
+				semihosting = new SemihostingCPU();
+			if(options.getFlight() > 0)
+				flight = new FlightRecorderCPU(options.getFlight());
+			mark();
+			return;
+		}
+		if(options.isProfile())
+			profiler = new ProfilerCPU(listInstructions.size());
+		if(options.isCallGraph())
+			callGraph = new ProfilerCallGraph(reg[15], options.getTiming() != null ? "cycles" : "instructions");
+		if(options.getTiming() != null)
+			timing = TimingModel.forName(options.getTiming());
+		if(options.getSysTick() != null)
+			scheduler = EventScheduler.forSpec(options.getSysTick(), now());
+		bus = MemoryBus.forOptions(options, this::now);
+		if(options.isSemihosting())
+			semihosting = new SemihostingCPU();
+		cache = options.getCache() != null ? CacheCPU.forSpec(options.getCache(), listInstructions.size()) : null;
+		if(options.isTrace())
+			traceOpen();
+		if(options.getFlight() > 0)
+			flight = new FlightRecorderCPU(options.getFlight());
+		if(options.getCheckpointFile() != null)
+			checkpointOpen();
+		run();
+		if(trace != null)
+			traceClose();
+		if(checkpoint != null)
+			checkpointClose();
+		registerOutput();
+		if(profiler != null)
+			profileOutput();
+		if(callGraph != null)
+			callGraphOutput();
+		if(cache != null)
+			writeFile("arquivos/output/cache_" + getInputFile(), cache.report(listDisassembly));
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		ThumbInstructions
+	 * Description: Constructor method used by fork(). The new simulation has the same state 
+	 * 				of the parent and shares its memory pages. The profilers, the cache, 
+	 * 				the trace, the event scheduler, the memory bus, the semihosting and the 
+	 * 				undo log of the parent are not copied.
+	 *****************************************************************************************/
+	private ThumbInstructions(ThumbInstructions parent) {
+		strFile = parent.strFile;
+		image = parent.image;
+		strOpcodes = parent.strOpcodes;
+		options = parent.options;
+		listInstructions = parent.listInstructions;
+		listDisassembly = parent.listDisassembly;
+		listLines = parent.listLines;
+		entry = parent.entry;
+		timing = parent.timing;
+		if(options.getFlight() > 0)
+			flight = new FlightRecorderCPU(options.getFlight());
+		steps = parent.steps;
+		cycles = parent.cycles;
+		reg = parent.reg.clone();
+		regCPSR = parent.regCPSR;
+		programMemory = parent.programMemory.fork();
+		dataMemory = parent.dataMemory.fork();
+		stackMemory = parent.stackMemory.fork();
+		contMemory = parent.contMemory;
+		bl = parent.bl;
+		attPc = parent.attPc;
+		modeCPU = parent.modeCPU;
+		verbose = parent.verbose;
+		mark();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		load
+	 * Description: Returns a simulation of the program in the file ready to be run, without 
+	 * 				running it. Only the timing model and the flight recorder of the options
+	 * 				are used and the faults are not printed, see isFailed().
+	 * Return:		ThumbInstructions	
+	 *****************************************************************************************/
+	public static ThumbInstructions load(String strF, OptionsCPU opt) {
+		return new ThumbInstructions(strF, null, opt, null, false);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		loadImage
+	 * Description: Same as load(), with the program in the text of image, in the format of 
+	 * 				the input files, instead of in a file. name is only used in messages.
+	 * Return:		ThumbInstructions	
+	 *****************************************************************************************/
+	public static ThumbInstructions loadImage(String name, String image, OptionsCPU opt) {
+		return new ThumbInstructions(name, image, opt, null, false);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		mark
+	 * Description: Saves the current state as the state restored by reset()
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void mark() {
+		System.arraycopy(reg, 0, initialReg, 0, 16);
+		initialCPSR = regCPSR;
+		initialContMemory = contMemory;
+		initialBl = bl;
+		initialAttPc = attPc;
+		initialSteps = steps;
+		initialCycles = cycles;
+		programMemory.mark();
+		dataMemory.mark();
+		stackMemory.mark();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		reset
+	 * Description: Restores the state saved by mark(). Only the memory pages written since 
+	 * 				then are reverted, so the cost depends on the work of the last run and 
+	 * 				not on the size of the memories.
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void reset() {
+		System.arraycopy(initialReg, 0, reg, 0, 16);
+		regCPSR = initialCPSR;
+		contMemory = initialContMemory;
+		bl = initialBl;
+		attPc = initialAttPc;
+		steps = initialSteps;
+		cycles = initialCycles;
+		failed = false;
+		programMemory.reset();
+		dataMemory.reset();
+		stackMemory.reset();
+		if(flight != null)
+			flight.clear();
+		if(scheduler != null)
+			scheduler.reset(now());
+		if(semihosting != null)
+			semihosting.reset();
+		if(undo != null)
+			undo.clear();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		fork
+	 * Description: Returns a new simulation with the same state of this one. The memory 
+	 * 				pages are shared and only copied when one of the simulations writes to 
+	 * 				them, so each simulation can go on with run() independently.
+	 * Return:		ThumbInstructions	
+	 *****************************************************************************************/
+	public ThumbInstructions fork() {
+		return new ThumbInstructions(this);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Executes the program from the current state until an instruction is 
+	 * 				fetched outside of the program memory or the operation limit is reached
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void run() {
+		while(steps < options.getMaxSteps())
+			if(!step())
 				break;
+		if(bus != null)
+			bus.flush();
+		if(semihosting != null)
+			semihosting.flush();
+		if(steps == options.getMaxSteps()) {
+			if(verbose)
+				System.out.println("Limite de operações maxima excedidas!");
+			failed = true;
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		step
+	 * Description: Executes the instruction at the PC register. Returns false if it was 
+	 * 				fetched outside of the program memory or the program exited by the 
+	 * 				semihosting, and the run is over.
+	 * Return:		boolean	
+	 *****************************************************************************************/
+	public boolean step() {
+		try {
+			if(undo != null)
+				undo.record(reg, regCPSR, bl, attPc, steps, cycles, dataMemory, stackMemory);
+			if(scheduler != null) {
+				scheduler.advance(now());
+				int handler = scheduler.accept(regCPSR);
+				if(handler >= 0)
+					exceptionEntry(handler, EventScheduler.EXC_RETURN);
+			}
+			int pc = reg[15];
+			int opcode = programMemory.get(pc);
+			if(profiler != null) 
+				profiler.count(pc, opcode);
+			execute(opcode);
+			int cost = 1;
+			if(timing != null) {
+				cost = timing.cycles(opcode, reg[15] != pc + 2);
+				cycles += cost;
+			}
+			if(callGraph != null)
+				callGraph.count(opcode, reg[15], reg[14], cost);
+			if(trace != null)
+				traceRecord(pc, opcode);
+			if(flight != null)
+				flight.record(pc, opcode, reg, regCPSR);
+			steps++;
+			if(scheduler != null) {
+				if(scheduler.isActive() && (reg[15] & 0xFFFFFFF0) == 0xFFFFFFF0) {
+					exceptionReturn();
+					scheduler.exit();
+				}
+				else if(reg[15] <= pc)
+					idle();
 			}
-			catch (Exception e) {
+			if(steps == options.getSaveStep())
+				saveFile(options.getSaveFile());
+			if(checkpoint != null && steps % options.getCheckpointStep() == 0)
+				checkpointWrite();
+		} 
+		catch (NullPointerException e) {
+			String str = "At pc="
+					+ String.format("0x%08x", reg[15])
+					+ " Instruction fetched from a location outside of a code section (.text or .exceptions).";
+			if(verbose)
+				System.out.println(str);
+			if(undo != null)
+				restoreState(undo.undo(dataMemory, stackMemory));
+			failed = true;
+			return false;
+		}
+		catch (IllegalStateException e) {
+			if(verbose)
+				System.out.println("Error: " + e.getMessage());
+			failed = true;
+			return false;
+		}
+		catch (Exception e) {
+			if(verbose)
 				System.out.println("Error: " + e.getMessage());
+		}
+		return semihosting == null || !semihosting.isExited();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		reverseStep
+	 * Description: Goes back to the state before the last step, see enableReverse(). Returns false 
+	 * 				if the history starts at the current step. The devices (event scheduler, 
+	 * 				bus and semihosting) are not reverted, and their output is written again 
+	 * 				when the steps since a snapshot are run again.
+	 * Return:		boolean	
+	 *****************************************************************************************/
+	public boolean reverseStep() {
+		if(undo == null)
+			return false;
+		if(undo.isEmpty()) {
+			int target = steps;
+			int[] state = undo.rewind(target, dataMemory, stackMemory);
+			if(state == null)
+				return false;
+			restoreState(state);
+			boolean wasVerbose = verbose;
+			verbose = false;
+			while(steps < target) {
+				int before = steps;
+				step();
+				if(steps == before)
+					break;
 			}
+			verbose = wasVerbose;
+			if(undo.isEmpty())
+				return false;
 		}
-		if(rep == 10000)
-			System.out.println("Limite de operações maxima excedidas!");
-		registerOutput();
+		restoreState(undo.undo(dataMemory, stackMemory));
+		failed = false;
+		return true;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		reverseContinue
+	 * Description: Goes back until the PC is at one of the breakpoints, the bits pc / 2 of 
+	 * 				the set. Returns false if the start of the history was reached first.
+	 * Return:		boolean	
+	 *****************************************************************************************/
+	public boolean reverseContinue(BitSet breakpoints) {
+		while(reverseStep())
+			if(breakpoints.get(reg[15] >>> 1))
+				return true;
+		return false;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		restoreState
+	 * Description: Puts back the registers, the bl/attPc state, the steps and the cycles of 
+	 * 				a state of the undo log, see UndoLogCPU.STATE
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void restoreState(int[] state) {
+		System.arraycopy(state, 0, reg, 0, 16);
+		regCPSR = state[UndoLogCPU.CPSR];
+		bl = (state[UndoLogCPU.FLAGS] & 0x1) == 1;
+		attPc = (state[UndoLogCPU.FLAGS] & 0x2) == 2;
+		steps = state[UndoLogCPU.STEPS];
+		cycles = ((long) state[UndoLogCPU.CYCLES] << 32) | (state[UndoLogCPU.CYCLES + 1] & 0xFFFFFFFFL);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		clearHistory
+	 * Description: Discards the history of reverseStep(), after the state was changed 
+	 * 				outside of the steps
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void clearHistory() {
+		if(undo != null)
+			undo.clear();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		enableReverse
+	 * Description: Starts the undo log of reverseStep(), with a snapshot every interval steps
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void enableReverse(int interval) {
+		undo = new UndoLogCPU(interval);
+	}
+	
+	public boolean isReversible() {
+		return undo != null;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		now
+	 * Description: Returns the simulated time of the event scheduler and the cycle counter, 
+	 * 				the cycles with a timing model, else the steps
+	 * Return:		long	
+	 *****************************************************************************************/
+	private long now() {
+		return timing != null ? cycles : steps;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		idle
+	 * Description: Called after a branch back. Skips the iterations of an idle loop until 
+	 * 				the next event, see EventScheduler.idle(). The stores, the semihosting 
+	 * 				calls and the reads of the devices are the effects of an iteration. Not 
+	 * 				done when the profilers, the trace, the checkpoints or -save have to see 
+	 * 				each step.
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void idle() {
+		if(profiler != null || callGraph != null || trace != null || checkpoint != null 
+				|| options.getSaveStep() >= 0)
+			return;
+		long iterations = scheduler.idle(reg, regCPSR, countStores + countEffects, steps, now(), options.getMaxSteps());
+		if(iterations > 0) {
+			steps += (int) (iterations * scheduler.getIterationSteps());
+			if(timing != null)
+				cycles += iterations * scheduler.getIterationTime();
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		snapshot
+	 * Description: Returns a copy of the current state of the simulation
+	 * Return:		SnapshotCPU	
+	 *****************************************************************************************/
+	public SnapshotCPU snapshot() {
+		return new SnapshotCPU(reg, regCPSR, programMemory, dataMemory, stackMemory, contMemory, 
+				bl, attPc, steps, cycles);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		restore
+	 * Description: Replaces the state of the simulation by the snapshot
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void restore(SnapshotCPU snapshot) {
+		System.arraycopy(snapshot.getReg(), 0, reg, 0, 16);
+		regCPSR = snapshot.getRegCPSR();
+		programMemory.clear();
+		programMemory.putAll(snapshot.getProgramMemory());
+		dataMemory.clear();
+		dataMemory.putAll(snapshot.getDataMemory());
+		stackMemory.clear();
+		stackMemory.putAll(snapshot.getStackMemory());
+		contMemory = snapshot.getContMemory();
+		bl = snapshot.isBl();
+		attPc = snapshot.isAttPc();
+		steps = snapshot.getSteps();
+		cycles = snapshot.getCycles();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		saveFile
+	 * Description: Writes a snapshot of the current state in the file
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void saveFile(String file) {
+		try {
+			snapshot().write(file);
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the snapshot: " + e.getMessage());
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		restoreFile
+	 * Description: Replaces the state of the simulation by the snapshot in the file
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void restoreFile(String file) {
+		try {
+			restore(SnapshotCPU.read(file));
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem reading the snapshot: " + e.getMessage());
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		resumeFile
+	 * Description: Replaces the state of the simulation by the last checkpoint in the file
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void resumeFile(String file) {
+		try {
+			CheckpointCPU checkpointFile = new CheckpointCPU(file, true);
+			try {
+				restore(checkpointFile.read());
+			}
+			finally {
+				checkpointFile.close();
+			}
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem reading the checkpoint: " + e.getMessage());
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		checkpointOpen
+	 * Description: Opens the file of the checkpoints. If the run was resumed from the same 
+	 * 				file, the checkpoints in it are kept and the next one only writes the 
+	 * 				pages changed since the resume.
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void checkpointOpen() {
+		String file = options.getCheckpointFile();
+		boolean resume = file.equals(options.getResumeFile());
+		try {
+			checkpoint = new CheckpointCPU(file, resume);
+			if(resume)
+				checkpoint.attach(new PagedMemory[] {programMemory, dataMemory, stackMemory});
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the checkpoint: " + e.getMessage());
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		checkpointWrite
+	 * Description: Writes a checkpoint of the current state. The checkpoints are stopped if 
+	 * 				they can not be written.
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void checkpointWrite() {
+		try {
+			checkpoint.write(reg, regCPSR, contMemory, bl, attPc, steps, cycles, 
+					new PagedMemory[] {programMemory, dataMemory, stackMemory});
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the checkpoint: " + e.getMessage());
+			checkpointClose();
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		checkpointClose
+	 * Description: Closes the file of the checkpoints
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void checkpointClose() {
+		try {
+			checkpoint.close();
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the checkpoint: " + e.getMessage());
+		}
+		checkpoint = null;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		traceOpen
+	 * Description: Starts the binary trace of the run in the output directory
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void traceOpen() {
+		String outputFile = "arquivos/output/trace_" + getInputFile().replaceFirst("\\.txt$", "") + ".bin";
+		try {
+			trace = new TraceCPU(outputFile, reg, regCPSR);
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the trace: " + e.getMessage());
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		traceRecord
+	 * Description: Records the executed instruction in the trace. The trace is stopped if 
+	 * 				it can not be written.
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void traceRecord(int pc, int opcode) {
+		try {
+			trace.record(pc, opcode, reg, regCPSR);
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the trace: " + e.getMessage());
+			traceClose();
+		}
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		traceClose
+	 * Description: Writes the records left and closes the trace
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void traceClose() {
+		try {
+			trace.close();
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the trace: " + e.getMessage());
+		}
+		trace = null;
 	}
 	
 	/*****************************************************************************************
 	 * Name: 		decodeFile
 	 * Description: Function that decodes the text file into an arraylist of integers. 
-	 * 				The programMemory is also formed in this function.
+	 * 				The programMemory is also formed in this function. The lines equal to 
+	 * 				the lines of previous are not decoded again.
 	 * Return:		ArrayList<Integer>	
 	 *****************************************************************************************/
-	private ArrayList<Integer> decodeFile() {
+	private ArrayList<Integer> decodeFile(ThumbInstructions previous) {
 		try (
-                FileReader inputFile = new FileReader(strFile);
-                BufferedReader inputStream = new BufferedReader(inputFile);
+                BufferedReader inputStream = new BufferedReader(image != null ? new StringReader(image) 
+                		: new FileReader(strFile));
             )
         {
 			String aux = inputStream.readLine();					// Read line
@@ -94,14 +681,24 @@ public class ThumbInstructions extends OperationsInstructions {
             ArrayList<Integer> listInstructions = new ArrayList<Integer>();
             
             while(str != null) {
-            	strL = str[1].substring(4); 					// 16 least significant bits
-               	strH = str[1].substring(0, 4);					// 16 most significant bits
-            	programMemory.put(cont, decodeString(strL));	// Add opcode in programMemory	
+            	int line = listLines.size(), opcodeL, opcodeH;
+            	if(previous != null && line < previous.listLines.size() && aux.equals(previous.listLines.get(line))) {
+            		opcodeL = previous.listInstructions.get(2 * line);		// Line not changed since the 
+            		opcodeH = previous.listInstructions.get(2 * line + 1);	// previous version of the file
+            	}
+            	else {
+            		strL = str[1].substring(4); 				// 16 least significant bits
+            		strH = str[1].substring(0, 4);				// 16 most significant bits
+            		opcodeL = decodeString(strL);
+            		opcodeH = decodeString(strH);
+            	}
+            	listLines.add(aux);
+            	programMemory.put(cont, opcodeL);				// Add opcode in programMemory	
             	cont += 2;										// Increment cont  
-            	programMemory.put(cont, decodeString(strH));	// Add opcode in programMemory
+            	programMemory.put(cont, opcodeH);				// Add opcode in programMemory
             	cont += 2;										// Increment cont 
-            	listInstructions.add(decodeString(strL));		// Add opcode in listInstructions
-            	listInstructions.add(decodeString(strH));		// Add opcode in listInstructions
+            	listInstructions.add(opcodeL);					// Add opcode in listInstructions
+            	listInstructions.add(opcodeH);					// Add opcode in listInstructions
             	aux = inputStream.readLine();					// Reaf next line
             	str = aux != null ? aux.split(": ") : null;		// Separate the String from the token ": "
             }
@@ -127,21 +724,93 @@ public class ThumbInstructions extends OperationsInstructions {
 		
 	/*****************************************************************************************
 	 * Name: 		decodeOpcodes
-	 * Description: Show disassembly opcodes
+	 * Description: Show disassembly opcodes. The disassembly is taken from the shared 
+	 * 				PredecodeCache if the same opcodes were already decoded. Else, if previous 
+	 * 				is not null, only the instructions that changed since previous, or that 
+	 * 				follow a change of the bl state, are disassembled again.
+	 * Return:		String	
+	 *****************************************************************************************/
+	private void decodeOpcodes(ThumbInstructions previous){
+		listInstructions = decodeFile(previous);
+		entry = PredecodeCache.getShared().get(listInstructions, options.getDecodeCacheDir());
+		if(entry == null) {
+			PredecodeCache.Entry old = previous != null ? previous.entry : null;
+			ArrayList<String> list = new ArrayList<String>();
+			BitSet listBl = new BitSet();
+			for(int i = 0; i < listInstructions.size(); i++) {
+				int integer = listInstructions.get(i);
+				listBl.set(i, bl);
+				if(old != null && i < old.getListDisassembly().size() && integer == previous.listInstructions.get(i) 
+						&& bl == old.isBlBefore(i)) {
+					list.add(old.getListDisassembly().get(i));
+					contMemory += 2;
+					bl = old.isBlBefore(i + 1);
+				}
+				else {
+					execute(integer);
+					list.add(toString());
+					countDecoded++;
+				}
+			}
+			entry = new PredecodeCache.Entry(listInstructions, list, contMemory, bl, listBl);
+			PredecodeCache.getShared().put(entry, options.getDecodeCacheDir());
+		}
+		listDisassembly = entry.getListDisassembly();
+		strOpcodes = entry.getStrOpcodes();
+		contMemory = entry.getContMemory();
+		bl = entry.isBl();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		getInputFile
+	 * Description: Returns the name of the input file without the input directory
 	 * Return:		String	
 	 *****************************************************************************************/
-	private void decodeOpcodes( ){
-		StringBuilder str = new StringBuilder();
-		str.append(".thumb\n");
-		ArrayList<Integer> listInstructions = decodeFile();
-		for (Integer integer : listInstructions) 
-			str.append("\t" + new DecodeInstructions(integer) + "\n");
-		strOpcodes = str.toString();
+	private String getInputFile() {
+		return getInputFile(strFile);
+	}
+	
+	public static String getInputFile(String strFile) {
+		return Paths.get(strFile).getFileName().toString();
 	}
 	
 	private void registerOutput() {
-		String[] aux = strFile.split("arquivos/input/");
-		String inputFile = aux[1];
+		output = showOutput();
+		writeOutput(getInputFile(), output);
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		showOutput
+	 * Description: Shows the output of the run, as written in the output directory without 
+	 * 				the header
+	 * Return:		String	
+	 *****************************************************************************************/
+	public String showOutput() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getStrOpcodes() + "\n");
+		sb.append(showRegisters() + "\n");
+		sb.append(showCPSR() + "\n");
+		sb.append(showProgramMemory() + "\n");
+		sb.append(showDataMemory() + "\n");
+		sb.append(showStackMemory() + "\n");
+		if(timing != null)
+			sb.append(showCycles() + "\n");
+		if(scheduler != null)
+			sb.append(showEvents() + "\n");
+		if(semihosting != null)
+			sb.append(showSemihosting() + "\n");
+		if(failed && flight != null)
+			sb.append(flight.show(listDisassembly) + "\n");
+		return sb.toString();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		writeOutput
+	 * Description: Writes the output of a run of the input file in the output directory, 
+	 * 				after a header with the current date
+	 * Return:		void	
+	 *****************************************************************************************/
+	public static void writeOutput(String inputFile, String output) {
 		String outputFile = "arquivos/output/output_" + inputFile;
 		try (	
 				FileWriter clienteFile = new FileWriter(outputFile, false);
@@ -154,12 +823,7 @@ public class ThumbInstructions extends OperationsInstructions {
 			sb.append("                       Output referring to input " + inputFile + "\n");
 			sb.append("Date: " + dtf.format(LocalDateTime.now()) + "\n");
 			sb.append("----------------------------------------------------------------------------\n");
-			sb.append(getStrOpcodes() + "\n");
-			sb.append(showRegisters() + "\n");
-			sb.append(showCPSR() + "\n");
-			sb.append(showProgramMemory() + "\n");
-			sb.append(showDataMemory() + "\n");
-			sb.append(showStackMemory() + "\n");
+			sb.append(output);
 			clienteWriter.print(sb+"\n");
 		}
 		catch(IOException e) {
@@ -168,6 +832,46 @@ public class ThumbInstructions extends OperationsInstructions {
 	}
 	
 	
+	/*****************************************************************************************
+	 * Name: 		profileOutput
+	 * Description: Writes the profiling report of the run in the output directory
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void profileOutput() {
+		writeFile("arquivos/output/profile_" + getInputFile(), 
+				profiler.report(listInstructions, listDisassembly));
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		callGraphOutput
+	 * Description: Writes the call graph report of the run and the call stacks in the folded 
+	 * 				format used by flame graphs in the output directory
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void callGraphOutput() {
+		String name = getInputFile().replaceFirst("\\.txt$", "");
+		writeFile("arquivos/output/callgraph_" + name + ".txt", callGraph.report());
+		writeFile("arquivos/output/callgraph_" + name + ".folded", callGraph.folded());
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		writeFile
+	 * Description: Writes the text in the file
+	 * Return:		void	
+	 *****************************************************************************************/
+	private void writeFile(String outputFile, String text) {
+		try (	
+				FileWriter file = new FileWriter(outputFile, false);
+				PrintWriter writer = new PrintWriter(file);
+			)
+		{  
+			writer.print(text);
+		}
+		catch(IOException e) {
+			System.out.println("There was a problem writing the file");
+		}
+	}
+	
 	/*****************************************************************************************
 	 * Name: 		showRegisters
 	 * Description: Show the registers
@@ -241,8 +945,8 @@ public class ThumbInstructions extends OperationsInstructions {
 		str +=   "|                           Data Memory                             |";
 		str += "\n---------------------------------------------------------------------\n";
 		str += String.format("  %s     %8s\n","Adress", "Data");
-		Iterator<Integer> addr = dataMemory.keySet().iterator();
-		Iterator<Integer> data = dataMemory.values().iterator();
+		Iterator<Integer> addr = dataAccess().keySet().iterator();
+		Iterator<Integer> data = dataAccess().values().iterator();
 		while(addr.hasNext() && data.hasNext()) 
 			str += String.format("0x%08x    0x%08x\n", addr.next(), data.next());
 		return str;
@@ -266,6 +970,105 @@ public class ThumbInstructions extends OperationsInstructions {
 		return str;
 	}
 	
+	/*****************************************************************************************
+	 * Name: 		showCycles
+	 * Description: Shows the cycles spent by the run according to the timing model
+	 * Return:		String	
+	 *****************************************************************************************/
+	public String showCycles() {
+		String 
+		str  = "\n---------------------------------------------------------------------\n";
+		str +=   "|                              Cycles                               |";
+		str += "\n---------------------------------------------------------------------\n";
+		str += String.format("Timing model: %s\n", timing.getName());
+		str += String.format("Instructions: %d\n", steps);
+		str += String.format("Cycles:       %d\n", cycles);
+		str += String.format("CPI:          %.2f", steps == 0 ? 0.0 : (double) cycles / steps);
+		return str;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		showEvents
+	 * Description: Shows the events and the interrupts of the run, see EventScheduler.show()
+	 * Return:		String	
+	 *****************************************************************************************/
+	public String showEvents() {
+		return scheduler.show();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		showSemihosting
+	 * Description: Shows the calls and the exit of the semihosting, see SemihostingCPU.show()
+	 * Return:		String	
+	 *****************************************************************************************/
+	public String showSemihosting() {
+		return semihosting.show();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		getExitCode
+	 * Description: Returns the exit code of the program given to the semihosting, 0 if it 
+	 * 				did not exit
+	 * Return:		int	
+	 *****************************************************************************************/
+	public int getExitCode() {
+		return semihosting != null ? semihosting.getExitCode() : 0;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		getCountDirty
+	 * Description: Returns the number of memory pages written since mark() or reset()
+	 * Return:		int	
+	 *****************************************************************************************/
+	public int getCountDirty() {
+		return programMemory.getCountDirty() + dataMemory.getCountDirty() + stackMemory.getCountDirty();
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		getOutput
+	 * Description: Returns the output of the run written in the output directory, without 
+	 * 				the header
+	 * Return:		String	
+	 *****************************************************************************************/
+	public String getOutput() {
+		return output;
+	}
+	
+	public int getCountInstructions() {
+		return listInstructions.size();
+	}
+	
+	public int getCountDecoded() {
+		return countDecoded;
+	}
+	
+	public String getStrFile() {
+		return strFile;
+	}
+	
+	public boolean isFailed() {
+		return failed;
+	}
+	
+	public int getSteps() {
+		return steps;
+	}
+	
+	public long getCycles() {
+		return cycles;
+	}
+	
+	/*****************************************************************************************
+	 * Name: 		setCounters
+	 * Description: Replaces the counts of steps and cycles, used by LaneExecutor for the 
+	 * 				instructions executed on the registers of the lanes
+	 * Return:		void	
+	 *****************************************************************************************/
+	public void setCounters(int steps, long cycles) {
+		this.steps = steps;
+		this.cycles = cycles;
+	}
+	
 	public String getStrOpcodes() {
 		return strOpcodes;
 	}
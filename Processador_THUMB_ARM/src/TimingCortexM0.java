@@ -0,0 +1,91 @@
+/*************************************************************************************
+ * @filename: 		TimingCortexM0.java
+ * @description:	Timing model of the Cortex-M0 processor. 
+ * 					Extends TimingModel.
+ * 					See table 3.1 of the Cortex-M0 Technical Reference Manual.
+ * @version:		1.0
+ * @created:  		10/18/2026, 10:47:52
+ * @modified: 		10/18/2026, 10:47:52
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+public class TimingCortexM0 extends TimingModel {
+	private int cyclesMUL;
+
+	/*****************************************************************************************
+	 * Name: 		TimingCortexM0
+	 * Description: Constructor method. cyclesMUL is 1 for the fast multiplier and 32 for 
+	 * 				the small multiplier.
+	 *****************************************************************************************/
+	public TimingCortexM0(int cyclesMUL) {
+		this.cyclesMUL = cyclesMUL;
+	}
+
+	@Override
+	public int cycles(int opcode, boolean taken) {
+		int N = Integer.bitCount(opcode & 0xFF);	// registers of the register list
+		switch ((opcode >>> 12) & 0xF) {
+		/******************************************
+		 * Data processing, high registers, BX
+		 ******************************************/
+		case 4:
+			if((opcode & 0xFFC0) == 0x4340)				// MUL
+				return cyclesMUL;
+			if((opcode & 0xFF00) == 0x4700)				// BX | BLX Rm
+				return 3;
+			if((opcode & 0xF800) == 0x4800)				// LDR Ld, [pc, #immed]
+				return 2;
+			if((opcode & 0xFC00) == 0x4400 && (opcode & 0xFF00) != 0x4500 && taken)
+				return 3;								// ADD | MOV pc, Rm
+			return 1;
+		/******************************************
+		 * Load/store single register
+		 ******************************************/
+		case 5: case 6: case 7: case 8: case 9:
+			return 2;
+		/******************************************
+		 * PUSH | POP
+		 ******************************************/
+		case 11:
+			if((opcode & 0xFE00) == 0xB400)				// PUSH {register_list, LR}
+				return 1 + N + ((opcode >>> 8) & 0x1);
+			if((opcode & 0xFE00) == 0xBC00)				// POP {register_list, PC}
+				return ((opcode >>> 8) & 0x1) == 1 ? 3 + N + 1 : 1 + N;
+			return 1;
+		/******************************************
+		 * STMIA | LDMIA
+		 ******************************************/
+		case 12:
+			return 1 + N;
+		/******************************************
+		 * B<cond> | SWI
+		 ******************************************/
+		case 13:
+			return taken ? 3 : 1;
+		/******************************************
+		 * B | BLX. In this simulator each half of
+		 * BL/BLX branches on its own, so the one
+		 * that takes the branch costs the call, 4
+		 ******************************************/
+		case 14:
+			return (opcode & 0x0800) == 0 ? 3 : 4;
+		/******************************************
+		 * BL | BLX, the call when taken
+		 ******************************************/
+		case 15:
+			return taken ? 4 : 1;
+		default:
+			return 1;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return cyclesMUL == 1 ? "Cortex-M0" : "Cortex-M0 (small multiplier)";
+	}
+
+}
@@ -0,0 +1,50 @@
+/*************************************************************************************
+ * @filename: 		TimingModel.java
+ * @description:	Mother class of the timing models, that assign a cost in cycles
+ * 					to each executed instruction.
+ * @version:		1.0
+ * @created:  		10/18/2026, 10:41:05
+ * @modified: 		10/18/2026, 10:41:05
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+public abstract class TimingModel {
+
+	/*****************************************************************************************
+	 * Name: 		forName
+	 * Description: Returns the timing model with the given name.
+	 * 				m0			-> Cortex-M0 with the single-cycle multiplier
+	 * 				m0-small	-> Cortex-M0 with the 32-cycle multiplier
+	 * Return:		TimingModel
+	 *****************************************************************************************/
+	public static TimingModel forName(String name) throws IllegalArgumentException {
+		switch (name) {
+		case "m0":
+			return new TimingCortexM0(1);
+		case "m0-small":
+			return new TimingCortexM0(32);
+		default:
+			throw new IllegalArgumentException("Unknown timing model: " + name);
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		cycles
+	 * Description: Returns the cycles spent by the opcode. taken is true if the instruction 
+	 * 				changed the flow of the program.
+	 * Return:		int
+	 *****************************************************************************************/
+	public abstract int cycles(int opcode, boolean taken);
+
+	/*****************************************************************************************
+	 * Name: 		getName
+	 * Description: Returns the description of the model
+	 * Return:		String
+	 *****************************************************************************************/
+	public abstract String getName();
+
+}
@@ -0,0 +1,202 @@
+/*************************************************************************************
+ * @filename: 		TraceCPU.java
+ * @description:	Class that records the execution trace in a compact binary file.
+ * 					The records are written in a ring of buffers owned by the thread
+ * 					that runs the simulation and a background thread writes the full
+ * 					buffers to the file.
+ *
+ * 					Format (big-endian):
+ * 					header:	"THTR" <version-2b> <R0..R15-4b each> <cpsr-4b>
+ * 					record: <pc-4b> <opcode-2b> <mask-2b> <value-4b for each bit of mask>
+ * 					Bits 0-14 of the mask are the registers R0-R14 changed by the
+ * 					instruction and bit 15 is the cpsr. R15 is not recorded, it is
+ * 					the pc of the next record.
+ * @version:		1.0
+ * @created:  		10/18/2026, 11:58:30
+ * @modified: 		10/18/2026, 11:58:30
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class TraceCPU {
+	private static final int SIZE_BUFFER = 64 * 1024;
+	private static final int BUFFERS = 4;
+	private static final int SIZE_RECORD = 8 + 16 * 4;		// largest record
+	private static final short VERSION = 1;
+
+	private FileChannel channel;
+	private BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+	private BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(BUFFERS + 1);
+	private ByteBuffer buffer;
+	private Thread writer;
+	private volatile IOException error = null;
+
+	private int[] lastReg = new int[16];
+	private int lastCPSR;
+
+	/*****************************************************************************************
+	 * Name: 		TraceCPU
+	 * Description: Constructor method. Opens the file, writes the header with the initial
+	 * 				state and starts the writer thread.
+	 *****************************************************************************************/
+	public TraceCPU(String file, int[] reg, int regCPSR) throws IOException {
+		channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		for(int i = 0; i < BUFFERS; i++)
+			free.add(ByteBuffer.allocateDirect(SIZE_BUFFER));
+		buffer = free.poll();
+		buffer.put((byte) 'T').put((byte) 'H').put((byte) 'T').put((byte) 'R').putShort(VERSION);
+		for(int i = 0; i < 16; i++)
+			buffer.putInt(reg[i]);
+		buffer.putInt(regCPSR);
+		System.arraycopy(reg, 0, lastReg, 0, 16);
+		lastCPSR = regCPSR;
+
+		writer = new Thread(this::write, "trace-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/*****************************************************************************************
+	 * Name: 		record
+	 * Description: Records the opcode executed at pc and the registers it changed
+	 * Return:		void
+	 *****************************************************************************************/
+	public void record(int pc, int opcode, int[] reg, int regCPSR) throws IOException {
+		if(buffer.remaining() < SIZE_RECORD)
+			swap();
+		int mask = 0;
+		for(int i = 0; i < 15; i++)
+			if(reg[i] != lastReg[i])
+				mask |= 1 << i;
+		if(regCPSR != lastCPSR)
+			mask |= 1 << 15;
+		buffer.putInt(pc).putShort((short) opcode).putShort((short) mask);
+		for(int i = 0; i < 15; i++) {
+			if(((mask >>> i) & 0x1) == 1) {
+				buffer.putInt(reg[i]);
+				lastReg[i] = reg[i];
+			}
+		}
+		if((mask >>> 15) == 1) {
+			buffer.putInt(regCPSR);
+			lastCPSR = regCPSR;
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		swap
+	 * Description: Hands the current buffer to the writer thread and takes a free one.
+	 * 				Blocks if the writer is BUFFERS buffers behind.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void swap() throws IOException {
+		if(error != null)
+			throw error;
+		try {
+			full.put(buffer);
+			buffer = free.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing the trace");
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Body of the writer thread. Writes the full buffers to the file until it
+	 * 				takes an empty buffer, that marks the end of the trace. After an error
+	 * 				the buffers are only recycled, so the simulation never blocks.
+	 * Return:		void
+	 *****************************************************************************************/
+	private void write() {
+		try {
+			while(true) {
+				ByteBuffer b = full.take();
+				b.flip();
+				if(!b.hasRemaining())
+					return;
+				try {
+					while(error == null && b.hasRemaining())
+						channel.write(b);
+				}
+				catch (IOException e) {
+					error = e;
+				}
+				b.clear();
+				free.put(b);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		close
+	 * Description: Writes the records left, stops the writer thread and closes the file
+	 * Return:		void
+	 *****************************************************************************************/
+	public void close() throws IOException {
+		try {
+			if(buffer.position() > 0)
+				swap();
+			full.put(ByteBuffer.allocate(0));
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			channel.close();
+		}
+		if(error != null)
+			throw error;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		toText
+	 * Description: Returns a trace file in text format, one line per executed instruction
+	 * Return:		String
+	 *****************************************************************************************/
+	public static String toText(String file) throws IOException {
+		try (FileChannel in = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			ByteBuffer b = ByteBuffer.allocate((int) in.size());
+			while(b.hasRemaining() && in.read(b) >= 0);
+			b.flip();
+			if(b.remaining() < 6 || b.getInt() != 0x54485452 || b.getShort() != VERSION)
+				throw new IOException("Not a trace file: " + file);
+			StringBuilder sb = new StringBuilder();
+			sb.append("initial:");
+			for(int i = 0; i < 16; i++)
+				sb.append(String.format(" R%d=0x%08x", i, b.getInt()));
+			sb.append(String.format(" CPSR=0x%08x\n", b.getInt()));
+			while(b.remaining() >= 8) {
+				int pc = b.getInt();
+				int opcode = b.getShort() & 0xFFFF;
+				int mask = b.getShort() & 0xFFFF;
+				sb.append(String.format("0x%08x  0x%04x ", pc, opcode));
+				for(int i = 0; i < 15; i++)
+					if(((mask >>> i) & 0x1) == 1)
+						sb.append(String.format(" R%d=0x%08x", i, b.getInt()));
+				if((mask >>> 15) == 1)
+					sb.append(String.format(" CPSR=0x%08x", b.getInt()));
+				sb.append("\n");
+			}
+			return sb.toString();
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+/*************************************************************************************
+ * @filename: 		UartMMIO.java
+ * @description:	UART mapped in the memory bus that only transmits. Each byte
+ * 					written to DR is kept in a buffer of the host and the buffer is
+ * 					written to the sink when it is full and at the end of each run.
+ *
+ * 					Registers:
+ * 					DR (+0x0)	write: transmits the low byte; read: 0
+ * 					SR (+0x4)	read: 1, the transmitter is always ready
+ * @version:		1.0
+ * @created:  		10/18/2026, 21:55:48
+ * @modified: 		10/18/2026, 21:55:48
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+public class UartMMIO extends DeviceMMIO {
+	public static final int DR = 0x0;
+	public static final int SR = 0x4;
+	public static final int SIZE = 0x8;				// bytes of the region
+
+	private OutputStream sink;
+	private long countBytes = 0;
+
+	/*****************************************************************************************
+	 * Name: 		UartMMIO
+	 * Description: Constructor method. The bytes transmitted are written to the sink.
+	 *****************************************************************************************/
+	public UartMMIO(OutputStream sink) {
+		this.sink = new BufferedOutputStream(sink, 1 << 13);
+	}
+
+	@Override
+	public int read(int offset) {
+		return offset == SR ? 1 : 0;
+	}
+
+	@Override
+	public void write(int offset, int value) {
+		if(offset != DR)
+			return;
+		try {
+			sink.write(value & 0xFF);
+			countBytes++;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void flush() {
+		try {
+			sink.flush();
+		}
+		catch (IOException e) {
+			System.out.println("There was a problem writing the UART: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "UART";
+	}
+
+	public long getCountBytes() {
+		return countBytes;
+	}
+
+}
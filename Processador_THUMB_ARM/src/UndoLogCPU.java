@@ -0,0 +1,187 @@
+/*************************************************************************************
+ * @filename: 		UndoLogCPU.java
+ * @description:	Undo log of the execution, to run the program backwards. Each step
+ * 					adds the registers, the cpsr, the bl/attPc state, the steps and
+ * 					the cycles before it, and each write to the data and stack
+ * 					memories adds the value it replaces, all in one array of int, so
+ * 					undo() puts the state back in the reverse order.
+ *
+ * 					Every interval steps a snapshot is taken (the memories are forked,
+ * 					sharing their pages) and the log is started again, so its size is
+ * 					bounded. Going back before the start of the log restores the last
+ * 					snapshot and runs again until the step, which fills the log of the
+ * 					interval, so the cost of the replay is at most interval steps.
+ * 					The oldest snapshots are discarded after MAX_SNAPSHOTS, and with
+ * 					them the oldest part of the history.
+ *
+ * 					Format of the log:
+ * 					step	<R0..R15> <cpsr> <bl | attPc << 1> <steps> <cycles-2 ints>
+ * 					write	<memory << 1 | present> <address> <old value>
+ * @version:		1.0
+ * @created:  		10/18/2026, 23:41:09
+ * @modified: 		10/18/2026, 23:41:09
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+public class UndoLogCPU {
+	public static final int DATA = 0;
+	public static final int STACK = 1;
+	public static final int STATE = 21;				// ints of the state of a step
+	public static final int CPSR = 16;				// positions in the state
+	public static final int FLAGS = 17;
+	public static final int STEPS = 18;
+	public static final int CYCLES = 19;
+	private static final int MAX_SNAPSHOTS = 256;
+
+	/*****************************************************************************
+	 * State of the simulation at the start of a step and its memories
+	 *****************************************************************************/
+	private static class Snapshot {
+		int[] state;
+		PagedMemory dataMemory;
+		PagedMemory stackMemory;
+
+		Snapshot(int[] state, PagedMemory dataMemory, PagedMemory stackMemory) {
+			this.state = state;
+			this.dataMemory = dataMemory;
+			this.stackMemory = stackMemory;
+		}
+	}
+
+	private int interval;
+	private int[] log = new int[1 << 12];
+	private int top = 0;							// ints in the log
+	private int[] marks = new int[1 << 8];			// position of the steps in the log
+	private int count = 0;							// steps in the log
+	private ArrayDeque<Snapshot> snapshots = new ArrayDeque<Snapshot>();
+	private int[] state = new int[STATE];
+
+	/*****************************************************************************************
+	 * Name: 		UndoLogCPU
+	 * Description: Constructor method. interval is the number of steps between snapshots
+	 *****************************************************************************************/
+	public UndoLogCPU(int interval) {
+		this.interval = interval;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		record
+	 * Description: Adds the state before a step, taking a snapshot with the memories first
+	 * 				if interval steps were run since the last one
+	 * Return:		void
+	 *****************************************************************************************/
+	public void record(int[] reg, int cpsr, boolean bl, boolean attPc, int steps, long cycles,
+			PagedMemory dataMemory, PagedMemory stackMemory) {
+		if(snapshots.isEmpty() || steps - snapshots.peekLast().state[STEPS] >= interval) {
+			if(snapshots.size() == MAX_SNAPSHOTS)
+				snapshots.pollFirst();
+			int[] snapshot = new int[STATE];
+			encode(snapshot, reg, cpsr, bl, attPc, steps, cycles);
+			snapshots.addLast(new Snapshot(snapshot, dataMemory.fork(), stackMemory.fork()));
+			top = count = 0;
+		}
+		if(count == marks.length)
+			marks = Arrays.copyOf(marks, count * 2);
+		marks[count++] = top;
+		ensure(STATE);
+		encode(log, top, reg, cpsr, bl, attPc, steps, cycles);
+		top += STATE;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		write
+	 * Description: Adds a write to the memory (DATA or STACK) at the address, that replaces
+	 * 				the value old, null if the address was not in the memory
+	 * Return:		void
+	 *****************************************************************************************/
+	public void write(int memory, int address, Integer old) {
+		if(count == 0)
+			return;
+		ensure(3);
+		log[top++] = memory << 1 | (old != null ? 1 : 0);
+		log[top++] = address;
+		log[top++] = old != null ? old : 0;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		undo
+	 * Description: Reverts the writes of the last step in the memories and removes it from
+	 * 				the log. Returns its state before the step, see STATE, valid until the
+	 * 				next call.
+	 * Return:		int[]
+	 *****************************************************************************************/
+	public int[] undo(PagedMemory dataMemory, PagedMemory stackMemory) {
+		int start = marks[--count];
+		for(int i = top - 3; i >= start + STATE; i -= 3) {
+			PagedMemory memory = (log[i] >>> 1) == STACK ? stackMemory : dataMemory;
+			if((log[i] & 0x1) == 1)
+				memory.put(log[i + 1], log[i + 2]);
+			else
+				memory.remove(log[i + 1]);
+		}
+		System.arraycopy(log, start, state, 0, STATE);
+		top = start;
+		return state;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		rewind
+	 * Description: Discards the snapshots from the step and puts the memories of the last
+	 * 				one before it in the memories. Returns its state, see STATE, or null if
+	 * 				there is none and the history starts at the step.
+	 * Return:		int[]
+	 *****************************************************************************************/
+	public int[] rewind(int steps, PagedMemory dataMemory, PagedMemory stackMemory) {
+		while(!snapshots.isEmpty() && snapshots.peekLast().state[STEPS] >= steps)
+			snapshots.pollLast();
+		top = count = 0;
+		if(snapshots.isEmpty())
+			return null;
+		Snapshot snapshot = snapshots.peekLast();
+		dataMemory.assign(snapshot.dataMemory);
+		stackMemory.assign(snapshot.stackMemory);
+		return snapshot.state;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		clear
+	 * Description: Discards the history, that starts again at the next step
+	 * Return:		void
+	 *****************************************************************************************/
+	public void clear() {
+		snapshots.clear();
+		top = count = 0;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	private void ensure(int ints) {
+		if(top + ints > log.length)
+			log = Arrays.copyOf(log, Math.max(log.length * 2, top + ints));
+	}
+
+	private static void encode(int[] state, int[] reg, int cpsr, boolean bl, boolean attPc, int steps,
+			long cycles) {
+		encode(state, 0, reg, cpsr, bl, attPc, steps, cycles);
+	}
+
+	private static void encode(int[] state, int i, int[] reg, int cpsr, boolean bl, boolean attPc, int steps,
+			long cycles) {
+		System.arraycopy(reg, 0, state, i, 16);
+		state[i + CPSR] = cpsr;
+		state[i + FLAGS] = (bl ? 1 : 0) | (attPc ? 2 : 0);
+		state[i + STEPS] = steps;
+		state[i + CYCLES] = (int) (cycles >>> 32);
+		state[i + CYCLES + 1] = (int) cycles;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*************************************************************************************
+ * @filename: 		WatchRunner.java
+ * @description:	Class that watches the input directory and runs again each input
+ * 					file when it changes. The last version of each file is kept, so
+ * 					only the lines and the instructions that changed are decoded again.
+ * @version:		1.0
+ * @created:  		10/18/2026, 16:58:44
+ * @modified: 		10/18/2026, 16:58:44
+ * @revision:  		none
+ * @ide:			Eclipse IDE 2022-06
+ * @compiler: 		javac 18.0.1.1
+ * @author: 		Hugo S. C. Bessa, hugobessa@alu.ufc.br
+ * @organization:	UFC - Quixada
+ *************************************************************************************/
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+public class WatchRunner {
+	private static final int DELAY = 20;		// ms waiting for more events of the same save
+
+	private OptionsCPU options;
+	private String dir;
+	private HashMap<String, ThumbInstructions> last = new HashMap<String, ThumbInstructions>();
+
+	/*****************************************************************************************
+	 * Name: 		WatchRunner
+	 * Description: Constructor method. dir is the directory of the input files.
+	 *****************************************************************************************/
+	public WatchRunner(OptionsCPU options, String dir) {
+		this.options = options;
+		this.dir = dir;
+	}
+
+	/*****************************************************************************************
+	 * Name: 		run
+	 * Description: Runs all the .txt files of the directory and then each file created or
+	 * 				changed, until the thread is interrupted
+	 * Return:		void
+	 *****************************************************************************************/
+	public void run() throws IOException {
+		try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+			Paths.get(dir).register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			TreeSet<String> files = new TreeSet<String>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(dir), "*.txt")) {
+				for (Path path : stream)
+					files.add(path.getFileName().toString());
+			}
+			for (String file : files)
+				runFile(file);
+			System.out.println("Watching " + dir + " (Ctrl+C to stop)");
+			while(true) {
+				files.clear();
+				WatchKey key = watcher.take();
+				do {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+							continue;
+						String file = event.context().toString();
+						if(file.endsWith(".txt"))
+							files.add(file);
+					}
+					key.reset();
+					key = watcher.poll(DELAY, TimeUnit.MILLISECONDS);
+				} while(key != null);
+				for (String file : files)
+					runFile(file);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*****************************************************************************************
+	 * Name: 		runFile
+	 * Description: Runs the file, reusing the decoding of its last version, and shows the
+	 * 				time of the run and the instructions decoded again
+	 * Return:		void
+	 *****************************************************************************************/
+	private void runFile(String file) {
+		String strFile = dir + "/" + file;
+		if(!Files.isRegularFile(Paths.get(strFile)))
+			return;
+		long start = System.nanoTime();
+		try {
+			ThumbInstructions thumbInstructions = new ThumbInstructions(strFile, options, last.get(strFile));
+			last.put(strFile, thumbInstructions);
+			System.out.println(String.format("%s: %.2f ms, %d of %d instructions decoded", file,
+					(System.nanoTime() - start) / 1e6, thumbInstructions.getCountDecoded(),
+					thumbInstructions.getCountInstructions()));
+		}
+		catch (RuntimeException e) {
+			System.out.println("Error: " + file + ": " + e);
+		}
+	}
+
+}